@@ -0,0 +1,94 @@
+package MechSim.Physics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Filters candidate pairs several at a time with the incubating Vector API, using as many lanes as the CPU's widest vectors hold
+ * Lives apart from the rest of the source since it needs --add-modules jdk.incubator.vector to compile and run
+ * PhysicsModel loads it by name, and falls back to ScalarOverlapFilter when it's missing or the module isn't available
+ * @author Gurwinder Gulati
+ *
+ */
+final class VectorOverlapFilter implements OverlapFilter
+{
+	//initializing this fails on a JVM without the module, which is what tells PhysicsModel to fall back
+	static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	
+	//state of each pair's bodies copied into lanes, indexed the same as the pairs so ranges filtered on different threads never share any
+	double[] m_centerXA, m_centerYA, m_centerXB, m_centerYB;
+	double[] m_spansX, m_spansY, m_reaches;
+	
+	/**
+	 * Creates a filter with no room for any pairs yet
+	 */
+	VectorOverlapFilter()
+	{
+		Reserve(0);
+	}
+	
+	@Override
+	public void Reserve(int capacity)
+	{
+		if (m_centerXA != null && m_centerXA.length >= capacity)
+			return;
+		
+		m_centerXA = new double[capacity];
+		m_centerYA = new double[capacity];
+		m_centerXB = new double[capacity];
+		m_centerYB = new double[capacity];
+		m_spansX = new double[capacity];
+		m_spansY = new double[capacity];
+		m_reaches = new double[capacity];
+	}
+	
+	@Override
+	public void Filter(PhysicsModel physics, int[] slotsA, int[] slotsB, byte[] results, int start, int end)
+	{
+		double[] posX = physics.m_posX, posY = physics.m_posY;
+		double[] offsetX = physics.m_offsetX, offsetY = physics.m_offsetY;
+		double[] extentX = physics.m_extentX, extentY = physics.m_extentY;
+		double[] radius = physics.m_radius;
+		
+		//the bodies of consecutive pairs are scattered, so their state is copied into lanes first
+		//indexed loads straight from the packed arrays crash C2 on some JDK 17 builds, and copying costs about the same anyway
+		int lanes = SPECIES.length(), i = start;
+		double[] centerXA = m_centerXA, centerYA = m_centerYA, centerXB = m_centerXB, centerYB = m_centerYB;
+		double[] spansX = m_spansX, spansY = m_spansY, reaches = m_reaches;
+		for (int last = end - lanes; i <= last; i += lanes)
+		{
+			for (int j = i; j < i + lanes; j++)
+			{
+				int a = slotsA[j], b = slotsB[j];
+				centerXA[j] = posX[a] + offsetX[a];
+				centerYA[j] = posY[a] + offsetY[a];
+				centerXB[j] = posX[b] + offsetX[b];
+				centerYB[j] = posY[b] + offsetY[b];
+				spansX[j] = extentX[a] + extentX[b];
+				spansY[j] = extentY[a] + extentY[b];
+				reaches[j] = radius[a] + radius[b];
+			}
+			
+			DoubleVector dX = DoubleVector.fromArray(SPECIES, centerXA, i).sub(DoubleVector.fromArray(SPECIES, centerXB, i));
+			DoubleVector dY = DoubleVector.fromArray(SPECIES, centerYA, i).sub(DoubleVector.fromArray(SPECIES, centerYB, i));
+			DoubleVector reach = DoubleVector.fromArray(SPECIES, reaches, i).add(PhysicsModel.EPSILON);
+			
+			//apart if their boxes don't touch, or if they're both round and their circles don't touch
+			VectorMask<Double> apart = dX.abs().compare(VectorOperators.GT, DoubleVector.fromArray(SPECIES, spansX, i).add(PhysicsModel.EPSILON))
+					.or(dY.abs().compare(VectorOperators.GT, DoubleVector.fromArray(SPECIES, spansY, i).add(PhysicsModel.EPSILON)))
+					.or(dX.mul(dX).add(dY.mul(dY)).compare(VectorOperators.GT, reach.mul(reach)));
+			long bits = apart.toLong();
+			while (bits != 0L)
+			{
+				results[i + Long.numberOfTrailingZeros(bits)] = PhysicsModel.PAIR_MISS;
+				bits &= bits - 1L;
+			}
+		}
+		
+		//pairs left over past the last full vector
+		if (i < end)
+			physics.m_scalarOverlapFilter.Filter(physics, slotsA, slotsB, results, i, end);
+	}
+}
@@ -8,5 +8,6 @@ package MechSim.Physics;
 public enum BoundsType
 {
 	Circle,
-	Rectangle
+	Rectangle,
+	Compound
 }
@@ -0,0 +1,46 @@
+package MechSim.Physics;
+
+import java.util.List;
+
+/**
+ * Spatial index used by a PhysicsModel to find PhysicsObjects that may be colliding
+ * @author Gurwinder Gulati
+ *
+ */
+interface Broadphase
+{
+	/**
+	 * Adds a PhysicsObject to the index
+	 * @param obj PhysicsObject to add
+	 */
+	void Insert(PhysicsObject obj);
+	
+	/**
+	 * Removes a PhysicsObject from the index
+	 * @param obj PhysicsObject to remove
+	 */
+	void Remove(PhysicsObject obj);
+	
+	/**
+	 * Notifies the index that the CollisionBounds of a PhysicsObject have moved
+	 * @param obj PhysicsObject that moved
+	 */
+	void Update(PhysicsObject obj);
+	
+	/**
+	 * Finds every indexed PhysicsObject whose bounds may overlap the given box
+	 * @param left Left edge of the box
+	 * @param top Top edge of the box
+	 * @param right Right edge of the box
+	 * @param bottom Bottom edge of the box
+	 * @param results List the candidates are appended to; each candidate is appended once
+	 */
+	void Query(double left, double top, double right, double bottom, List<PhysicsObject> results);
+	
+	/**
+	 * Finds every pair of indexed PhysicsObjects whose bounds may overlap
+	 * Pairs of two sleeping PhysicsObjects may be left out, since neither of them can start a collision
+	 * @param pairs List the candidate pairs are appended to; each pair is appended once, in either order
+	 */
+	void FindPairs(PairList pairs);
+}
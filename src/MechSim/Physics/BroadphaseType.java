@@ -0,0 +1,28 @@
+package MechSim.Physics;
+
+/**
+ * Strategies a PhysicsModel can use to find PhysicsObjects that may be colliding
+ * @author Gurwinder Gulati
+ *
+ */
+public enum BroadphaseType
+{
+	/**
+	 * Checks every registered PhysicsObject against every other one
+	 */
+	BruteForce,
+	/**
+	 * Buckets PhysicsObjects into the cells of a uniform grid and only checks PhysicsObjects that share a cell
+	 */
+	UniformGrid,
+	/**
+	 * Keeps the edges of every PhysicsObject's bounding box sorted along each axis and sweeps for overlapping intervals
+	 * Works best when most PhysicsObjects move slowly or not at all
+	 */
+	SweepAndPrune,
+	/**
+	 * Keeps PhysicsObjects in a balanced tree of bounding boxes
+	 * Works well regardless of how much the sizes of PhysicsObjects vary
+	 */
+	DynamicTree
+}
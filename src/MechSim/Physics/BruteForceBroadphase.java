@@ -0,0 +1,69 @@
+package MechSim.Physics;
+
+import java.util.List;
+
+/**
+ * Broadphase that reports every registered PhysicsObject that isn't Static or a Ghost as a candidate
+ * @author Gurwinder Gulati
+ *
+ */
+final class BruteForceBroadphase implements Broadphase
+{
+	PhysicsModel m_physicsModel;
+	
+	/**
+	 * Creates a Broadphase that reports every registered PhysicsObject as a candidate
+	 * @param physics PhysicsModel whose registered PhysicsObjects are reported
+	 */
+	BruteForceBroadphase(PhysicsModel physics)
+	{
+		m_physicsModel = physics;
+	}
+
+	@Override
+	public void Insert(PhysicsObject obj)
+	{
+		//the PhysicsModel's registered bodies are the index
+	}
+
+	@Override
+	public void Remove(PhysicsObject obj)
+	{
+		//the PhysicsModel's registered bodies are the index
+	}
+
+	@Override
+	public void Update(PhysicsObject obj)
+	{
+		//nothing is cached, so nothing goes stale
+	}
+
+	@Override
+	public void Query(double left, double top, double right, double bottom, List<PhysicsObject> results)
+	{
+		PhysicsObject[] bodies = m_physicsModel.m_bodies;
+		int count = m_physicsModel.m_bodyCount;
+		for (int i = 0; i < count; i++)
+		{
+			if (PhysicsModel.IsInBroadphase(bodies[i]))
+				results.add(bodies[i]);
+		}
+	}
+
+	@Override
+	public void FindPairs(PairList pairs)
+	{
+		PhysicsObject[] bodies = m_physicsModel.m_bodies;
+		int count = m_physicsModel.m_bodyCount;
+		for (int i = 0; i < count; i++)
+		{
+			if (!PhysicsModel.IsInBroadphase(bodies[i]))
+				continue;
+			for (int j = i + 1; j < count; j++)
+			{
+				if (PhysicsModel.IsInBroadphase(bodies[j]))
+					pairs.Add(bodies[i], bodies[j]);
+			}
+		}
+	}
+}
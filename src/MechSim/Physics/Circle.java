@@ -56,11 +56,72 @@ public final class Circle
 		return (X - x) * (X - x) + (Y - y) * (Y - y) <= Radius * Radius;
 	}
 	
+	/**
+	 * Finds when a moving Circle first touches a stationary Circle
+	 * @param dX Distance this Circle moves in the X dimension
+	 * @param dY Distance this Circle moves in the Y dimension
+	 * @param other Circle to sweep against
+	 * @return Fraction of the movement completed when the two first touch, 0.0 if they already touch, or Double.POSITIVE_INFINITY if they never do
+	 */
+	public double TimeOfImpact(double dX, double dY, Circle other)
+	{
+		return SweepTime(X, Y, dX, dY, other.X, other.Y, Radius + other.Radius);
+	}
+	
+	/**
+	 * Finds when a moving Circle first touches a stationary Rectangle
+	 * @param dX Distance this Circle moves in the X dimension
+	 * @param dY Distance this Circle moves in the Y dimension
+	 * @param other Rectangle to sweep against
+	 * @return Fraction of the movement completed when the two first touch, 0.0 if they already touch, or Double.POSITIVE_INFINITY if they never do
+	 */
+	public double TimeOfImpact(double dX, double dY, Rectangle other)
+	{
+		//sweeping a circle against a rectangle is the same as sweeping its center against the rectangle grown by the radius, with rounded corners
+		//so first sweep against the grown rectangle with square corners...
+		double time = Rectangle.SweepTime(X, Y, dX, dY, other.m_x - Radius, other.m_y - Radius, other.m_right + Radius, other.m_bottom + Radius);
+		if (time == Double.POSITIVE_INFINITY)
+			return time;
+		
+		//...and if the center arrived in one of the corners, sweep against that corner's rounding instead
+		double x = X + dX * time, y = Y + dY * time;
+		boolean left = x < other.m_x, right = x > other.m_right, top = y < other.m_y, bottom = y > other.m_bottom;
+		if ((left || right) && (top || bottom))
+			return SweepTime(X, Y, dX, dY, left ? other.m_x : other.m_right, top ? other.m_y : other.m_bottom, Radius);
+		return time;
+	}
+	
+	/**
+	 * Sweeps a point against a circle
+	 * @return Fraction of the movement completed when the point enters the circle, 0.0 if it starts inside, or Double.POSITIVE_INFINITY if it never does
+	 */
+	static double SweepTime(double x, double y, double dX, double dY, double centerX, double centerY, double radius)
+	{
+		//solve |start + time * movement - center| = radius for the earliest time
+		double fX = x - centerX, fY = y - centerY;
+		double c = fX * fX + fY * fY - radius * radius;
+		if (c <= 0.0)
+			return 0.0;
+		double b = fX * dX + fY * dY;
+		if (b >= 0.0)//moving away from the center
+			return Double.POSITIVE_INFINITY;
+		double a = dX * dX + dY * dY, discriminant = b * b - a * c;
+		if (discriminant < 0.0)
+			return Double.POSITIVE_INFINITY;
+		double time = (-b - Math.sqrt(discriminant)) / a;
+		return time <= 1.0 ? time : Double.POSITIVE_INFINITY;
+	}
+	
 	void Nudge(Circle other)
 	{
 		//find the ratio between current separation distance and what the separation distance should be (the sum of the radii)
 		double xDiff = X - other.X, yDiff = Y - other.Y;
 		double mag = Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+		if (mag == 0.0)
+		{
+			//the centers coincide, so any direction is as good as any other
+			xDiff = mag = 1.0;
+		}
 		
 		//move to make the separation distance equal to what it should be (the sum of the radii)
 		X = other.X + xDiff / mag * (Radius + other.Radius);
@@ -1,14 +1,15 @@
 package MechSim.Physics;
 
 /**
- * A union of a Circle and a Rectangle
+ * A union of a Circle and a Rectangle, or a compound of several of them moving as one
  * @author Gurwinder Gulati
  *
  */
 public final class CollisionBounds
 {
 	Circle m_circle;
-	Rectangle m_rect;
+	Rectangle m_rect;//for a compound, the cached box enclosing all of its shapes
+	CollisionBounds[] m_children;//shapes making up a compound, in the same coordinates as the compound itself
 	
 	BoundsType m_boundsType;
 	
@@ -32,6 +33,71 @@ public final class CollisionBounds
 		m_boundsType = BoundsType.Rectangle;
 	}
 	
+	/**
+	 * Constructs a CollisionBounds made up of several shapes, which move together and collide as one
+	 * Other shapes are only checked against the individual shapes when they touch the box enclosing all of them
+	 * @param children Shapes making up the compound, positioned where they should be relative to each other; compounds are flattened into their shapes
+	 */
+	public CollisionBounds(CollisionBounds... children)
+	{
+		int count = 0;
+		for (int i = 0; i < children.length; i++)
+			count += children[i].GetPartCount();
+		m_children = new CollisionBounds[count];
+		count = 0;
+		for (int i = 0; i < children.length; i++)
+		{
+			for (int j = 0; j < children[i].GetPartCount(); j++)
+				m_children[count++] = children[i].GetPart(j);
+		}
+		m_rect = new Rectangle(0.0, 0.0, 0.0, 0.0);
+		m_boundsType = BoundsType.Compound;
+		FitEnclosingBox();
+	}
+	
+	/**
+	 * Recalculates the box enclosing all of the shapes of a compound
+	 */
+	void FitEnclosingBox()
+	{
+		if (m_boundsType != BoundsType.Compound || m_children.length == 0)
+			return;
+		double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < m_children.length; i++)
+		{
+			CollisionBounds child = m_children[i];
+			left = Math.min(left, child.GetLeft());
+			top = Math.min(top, child.GetTop());
+			right = Math.max(right, child.GetRight());
+			bottom = Math.max(bottom, child.GetBottom());
+		}
+		m_rect.m_x = left;
+		m_rect.m_y = top;
+		m_rect.m_width = right - left;
+		m_rect.m_height = bottom - top;
+		m_rect.m_right = right;
+		m_rect.m_bottom = bottom;
+	}
+	
+	/**
+	 * @return Number of simple shapes making up the bounds, which is 1 unless it's a compound
+	 */
+	int GetPartCount() { return m_children != null ? m_children.length : 1; }
+	
+	/**
+	 * @return One of the simple shapes making up the bounds, which is the bounds itself unless it's a compound
+	 */
+	CollisionBounds GetPart(int index) { return m_children != null ? m_children[index] : this; }
+	
+	/**
+	 * @return Whether or not the boxes enclosing the two shapes touch, give or take PhysicsModel.EPSILON
+	 */
+	boolean BoxIntersects(CollisionBounds other)
+	{
+		return GetLeft() <= other.GetRight() + PhysicsModel.EPSILON && other.GetLeft() <= GetRight() + PhysicsModel.EPSILON
+				&& GetTop() <= other.GetBottom() + PhysicsModel.EPSILON && other.GetTop() <= GetBottom() + PhysicsModel.EPSILON;
+	}
+	
 	/**
 	 * Checks for intersection of two shapes
 	 * @param other CollisionBounds to check against
@@ -39,6 +105,20 @@ public final class CollisionBounds
 	 */
 	public boolean Intersects(CollisionBounds other)
 	{
+		if (m_boundsType == BoundsType.Compound || other.m_boundsType == BoundsType.Compound)
+		{
+			if (!BoxIntersects(other))
+				return false;
+			for (int i = 0; i < GetPartCount(); i++)
+			{
+				for (int j = 0; j < other.GetPartCount(); j++)
+				{
+					if (GetPart(i).Intersects(other.GetPart(j)))
+						return true;
+				}
+			}
+			return false;
+		}
 		if (m_boundsType == BoundsType.Circle)
 		{
 			if (other.m_boundsType == BoundsType.Circle)
@@ -62,6 +142,17 @@ public final class CollisionBounds
 	 */
 	public boolean Intersects(Circle other)
 	{
+		if (m_boundsType == BoundsType.Compound)
+		{
+			if (!m_rect.Intersects(other))
+				return false;
+			for (int i = 0; i < m_children.length; i++)
+			{
+				if (m_children[i].Intersects(other))
+					return true;
+			}
+			return false;
+		}
 		return m_boundsType == BoundsType.Circle ? m_circle.Intersects(other) : m_rect.Intersects(other);
 	}
 	
@@ -72,9 +163,108 @@ public final class CollisionBounds
 	 */
 	public boolean Intersects(Rectangle other)
 	{
+		if (m_boundsType == BoundsType.Compound)
+		{
+			if (!m_rect.Intersects(other))
+				return false;
+			for (int i = 0; i < m_children.length; i++)
+			{
+				if (m_children[i].Intersects(other))
+					return true;
+			}
+			return false;
+		}
 		return m_boundsType == BoundsType.Circle ? m_circle.Intersects(other) : m_rect.Intersects(other);
 	}
 	
+	/**
+	 * Finds when the moving shape first touches another, stationary shape
+	 * @param dX Distance this shape moves in the X dimension
+	 * @param dY Distance this shape moves in the Y dimension
+	 * @param other CollisionBounds to sweep against
+	 * @return Fraction of the movement completed when the two first touch, 0.0 if they already touch, or Double.POSITIVE_INFINITY if they never do
+	 */
+	public double TimeOfImpact(double dX, double dY, CollisionBounds other)
+	{
+		if (m_boundsType == BoundsType.Compound || other.m_boundsType == BoundsType.Compound)
+		{
+			//the shapes can only meet if the enclosing boxes do, and then they first touch when the earliest pair of their shapes does
+			double width = GetRight() - GetLeft(), height = GetBottom() - GetTop();
+			if (Rectangle.SweepTime(GetLeft(), GetTop(), dX, dY, other.GetLeft() - width, other.GetTop() - height, other.GetRight(), other.GetBottom()) == Double.POSITIVE_INFINITY)
+				return Double.POSITIVE_INFINITY;
+			double first = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < GetPartCount(); i++)
+			{
+				for (int j = 0; j < other.GetPartCount(); j++)
+				{
+					double time = GetPart(i).TimeOfImpact(dX, dY, other.GetPart(j));
+					first = time < first ? time : first;
+				}
+			}
+			return first;
+		}
+		if (m_boundsType == BoundsType.Circle)
+		{
+			if (other.m_boundsType == BoundsType.Circle)
+				return m_circle.TimeOfImpact(dX, dY, other.m_circle);
+			else
+				return m_circle.TimeOfImpact(dX, dY, other.m_rect);
+		}
+		else
+		{
+			if (other.m_boundsType == BoundsType.Circle)
+				return m_rect.TimeOfImpact(dX, dY, other.m_circle);
+			else
+				return m_rect.TimeOfImpact(dX, dY, other.m_rect);
+		}
+	}
+	
+	/**
+	 * Moves the encapsulated shape
+	 * @param dX Distance to move in the X dimension
+	 * @param dY Distance to move in the Y dimension
+	 */
+	public void Translate(double dX, double dY)
+	{
+		if (m_boundsType == BoundsType.Compound)
+		{
+			for (int i = 0; i < m_children.length; i++)
+				m_children[i].Translate(dX, dY);
+		}
+		if (m_boundsType == BoundsType.Circle)
+		{
+			m_circle.X += dX;
+			m_circle.Y += dY;
+		}
+		else
+		{
+			m_rect.m_x += dX;
+			m_rect.m_y += dY;
+			m_rect.m_right = m_rect.m_x + m_rect.m_width;
+			m_rect.m_bottom = m_rect.m_y + m_rect.m_height;
+		}
+	}
+
+	/**
+	 * @return Left edge of the axis-aligned box enclosing the shape
+	 */
+	public double GetLeft() { return m_boundsType == BoundsType.Circle ? m_circle.X - m_circle.Radius : m_rect.m_x; }
+
+	/**
+	 * @return Top edge of the axis-aligned box enclosing the shape
+	 */
+	public double GetTop() { return m_boundsType == BoundsType.Circle ? m_circle.Y - m_circle.Radius : m_rect.m_y; }
+
+	/**
+	 * @return Right edge of the axis-aligned box enclosing the shape
+	 */
+	public double GetRight() { return m_boundsType == BoundsType.Circle ? m_circle.X + m_circle.Radius : m_rect.m_right; }
+
+	/**
+	 * @return Bottom edge of the axis-aligned box enclosing the shape
+	 */
+	public double GetBottom() { return m_boundsType == BoundsType.Circle ? m_circle.Y + m_circle.Radius : m_rect.m_bottom; }
+
 	/**
 	 * @return Type of shape encapsulated in the CollisionBounds
 	 */
@@ -86,7 +276,18 @@ public final class CollisionBounds
 	public Circle GetCollisionCircle() { return m_circle; }
 	
 	/**
-	 * @return Collision rectangle. If CollisionBounds is not a Rectangle, it returns null instead.
+	 * @return Collision rectangle. If CollisionBounds is a compound, it returns the box enclosing all of its shapes, and if it's a Circle, it returns null instead.
 	 */
 	public Rectangle GetCollisionRectangle() { return m_rect; }
+	
+	/**
+	 * @return Number of shapes making up a compound, or 0 if CollisionBounds is not a compound
+	 */
+	public int GetChildCount() { return m_children != null ? m_children.length : 0; }
+	
+	/**
+	 * @param index Index of the shape, from 0 up to GetChildCount
+	 * @return One of the shapes making up a compound
+	 */
+	public CollisionBounds GetChild(int index) { return m_children[index]; }
 }
@@ -0,0 +1,12 @@
+package MechSim.Physics;
+
+/**
+ * How two intersecting shapes overlap, as found by a ContactKernel
+ * @author Gurwinder Gulati
+ *
+ */
+final class Contact
+{
+	double m_normalX, m_normalY;//unit direction from the first shape towards the second
+	double m_depth;//distance the shapes would have to move apart along the normal to stop overlapping
+}
@@ -0,0 +1,22 @@
+package MechSim.Physics;
+
+/**
+ * Stages of a contact between two PhysicsObjects, as reported to ContactListeners once per step
+ * @author Gurwinder Gulati
+ *
+ */
+public enum ContactEventType
+{
+	/**
+	 * The two PhysicsObjects started touching this step
+	 */
+	Begin,
+	/**
+	 * The two PhysicsObjects were already touching last step, and still are
+	 */
+	Stay,
+	/**
+	 * The two PhysicsObjects were touching last step, but no longer are
+	 */
+	End
+}
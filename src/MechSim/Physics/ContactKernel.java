@@ -0,0 +1,511 @@
+package MechSim.Physics;
+
+/**
+ * Narrowphase routines for one particular pair of shape types, looked up from a table instead of branching on both types at every step
+ * Supporting a new shape means adding its kernels to the table, rather than another layer of conditions to every routine
+ * @author Gurwinder Gulati
+ *
+ */
+abstract class ContactKernel
+{
+	static final int SHAPE_COUNT = 3;
+	static final int MAX_COMPOUND_NUDGES = 4;//most times a compound is pushed out along one of its shapes' overlaps in one nudge
+
+	private static final ContactKernel COMPOUND = new Compound();
+
+	//indexed by PhysicsModel.SHAPE_* of the first shape times SHAPE_COUNT, plus that of the second
+	static final ContactKernel[] KERNELS =
+	{
+		new CircleCircle(), new CircleRectangle(), COMPOUND,
+		new RectangleCircle(), new RectangleRectangle(), COMPOUND,
+		COMPOUND, COMPOUND, COMPOUND
+	};
+
+	/**
+	 * @param alphaShape PhysicsModel.SHAPE_* of the first shape
+	 * @param betaShape PhysicsModel.SHAPE_* of the second shape
+	 * @return Kernel for shapes of the given types, in that order
+	 */
+	static ContactKernel Get(byte alphaShape, byte betaShape)
+	{
+		return KERNELS[alphaShape * SHAPE_COUNT + betaShape];
+	}
+
+	/**
+	 * @return Whether or not the two shapes intersect
+	 */
+	abstract boolean Intersects(CollisionBounds alpha, CollisionBounds beta);
+
+	/**
+	 * Finds how two intersecting shapes overlap
+	 * @param contact Filled in with a normal from alpha towards beta, and the depth of the overlap along it
+	 */
+	abstract void FindContact(CollisionBounds alpha, CollisionBounds beta, Contact contact);
+
+	/**
+	 * Moves one body of a PhysicsModel so that its shape barely touches another's
+	 * @param physics PhysicsModel the bodies are registered with
+	 * @param moving Packed index of the body to move
+	 * @param other Packed index of the body to move away from
+	 */
+	abstract void Nudge(PhysicsModel physics, int moving, int other);
+
+	/**
+	 * Reflects the velocities of two bodies of a PhysicsModel off of each other, after they've been nudged apart
+	 * @param physics PhysicsModel the bodies are registered with
+	 * @param a Packed index of the first body
+	 * @param b Packed index of the second body
+	 * @param alphaResponds Whether or not the first body's velocity may change
+	 * @param betaResponds Whether or not the second body's velocity may change
+	 */
+	abstract void Respond(PhysicsModel physics, int a, int b, boolean alphaResponds, boolean betaResponds);
+
+	private static final class CircleCircle extends ContactKernel
+	{
+		@Override
+		boolean Intersects(CollisionBounds alpha, CollisionBounds beta)
+		{
+			return alpha.m_circle.Intersects(beta.m_circle);
+		}
+
+		@Override
+		void FindContact(CollisionBounds alphaBounds, CollisionBounds betaBounds, Contact contact)
+		{
+			Circle alpha = alphaBounds.m_circle, beta = betaBounds.m_circle;
+			double dX = beta.X - alpha.X, dY = beta.Y - alpha.Y;
+			double distance = Math.sqrt(dX * dX + dY * dY);
+			if (distance == 0.0)
+			{
+				//the centers coincide, so any direction is as good as any other
+				dX = distance = 1.0;
+			}
+			contact.m_normalX = dX / distance;
+			contact.m_normalY = dY / distance;
+			contact.m_depth = alpha.Radius + beta.Radius - distance;
+		}
+
+		@Override
+		void Nudge(PhysicsModel physics, int moving, int other)
+		{
+			Circle circle = physics.m_bodyBounds[moving].m_circle;
+			double x = circle.X, y = circle.Y;
+			circle.Nudge(physics.m_bodyBounds[other].m_circle);
+			physics.m_posX[moving] += circle.X - x;
+			physics.m_posY[moving] += circle.Y - y;
+		}
+
+		@Override
+		void Respond(PhysicsModel physics, int a, int b, boolean alphaResponds, boolean betaResponds)
+		{
+			double[] velX = physics.m_velX, velY = physics.m_velY, mass = physics.m_mass;
+			Circle alpha = physics.m_bodyBounds[a].m_circle, beta = physics.m_bodyBounds[b].m_circle;
+
+			//calculate a Newtonian reaction for a pair of circles
+			double impactX = velX[b] - velX[a],
+					impactY = velY[b] - velY[a];
+
+			//calculate the normalized impulse force
+			double impulseX = alpha.X - beta.X,
+				impulseY = alpha.Y - beta.Y;
+			double impulseMag = Math.sqrt(impulseX * impulseX + impulseY * impulseY);
+			if (impulseMag == 0.0)//coincident centers give no direction to push in
+				return;
+			impulseX /= impulseMag;
+			impulseY /= impulseMag;
+
+			//scale the impulse by the total momentum in the collision response
+			double impulseMult = physics.m_coefficientRestitution * Math.sqrt(Math.abs(impactX * impulseX + impactY * impulseY) * mass[a] * mass[b]);
+			impulseX *= impulseMult;
+			impulseY *= impulseMult;
+
+			//then, for both objects, apply the portion of the impulse scaled to its mass
+			if (alphaResponds)
+			{
+				velX[a] += impulseX / mass[a];
+				velY[a] += impulseY / mass[a];
+			}
+			if (betaResponds)
+			{
+				velX[b] -= impulseX / mass[b];
+				velY[b] -= impulseY / mass[b];
+			}
+		}
+	}
+
+	private static final class CircleRectangle extends ContactKernel
+	{
+		@Override
+		boolean Intersects(CollisionBounds alpha, CollisionBounds beta)
+		{
+			return alpha.m_circle.Intersects(beta.m_rect);
+		}
+
+		@Override
+		void FindContact(CollisionBounds alphaBounds, CollisionBounds betaBounds, Contact contact)
+		{
+			Circle alpha = alphaBounds.m_circle;
+			Rectangle beta = betaBounds.m_rect;
+
+			//clamp the circle's center to the rectangle to find the nearest point in the rectangle
+			double x = alpha.X < beta.m_x ? beta.m_x : alpha.X > beta.m_right ? beta.m_right : alpha.X;
+			double y = alpha.Y < beta.m_y ? beta.m_y : alpha.Y > beta.m_bottom ? beta.m_bottom : alpha.Y;
+			double dX = x - alpha.X, dY = y - alpha.Y;
+			double distance = Math.sqrt(dX * dX + dY * dY);
+			if (distance > 0.0)
+			{
+				contact.m_normalX = dX / distance;
+				contact.m_normalY = dY / distance;
+				contact.m_depth = alpha.Radius - distance;
+				return;
+			}
+
+			//the center is inside the rectangle, so push it out through the nearest edge
+			double left = alpha.X - beta.m_x, right = beta.m_right - alpha.X, top = alpha.Y - beta.m_y, bottom = beta.m_bottom - alpha.Y;
+			double nearest = Math.min(Math.min(left, right), Math.min(top, bottom));
+			contact.m_normalX = nearest == left ? 1.0 : nearest == right ? -1.0 : 0.0;
+			contact.m_normalY = contact.m_normalX != 0.0 ? 0.0 : nearest == top ? 1.0 : -1.0;
+			contact.m_depth = alpha.Radius + nearest;
+		}
+
+		@Override
+		void Nudge(PhysicsModel physics, int moving, int other)
+		{
+			Circle circle = physics.m_bodyBounds[moving].m_circle;
+			double x = circle.X, y = circle.Y;
+			circle.Nudge(physics.m_bodyBounds[other].m_rect);
+			physics.m_posX[moving] += circle.X - x;
+			physics.m_posY[moving] += circle.Y - y;
+		}
+
+		@Override
+		void Respond(PhysicsModel physics, int a, int b, boolean alphaResponds, boolean betaResponds)
+		{
+			double[] velX = physics.m_velX, velY = physics.m_velY;
+			double restitution = physics.m_coefficientRestitution;
+			Circle alpha = physics.m_bodyBounds[a].m_circle;
+			Rectangle beta = physics.m_bodyBounds[b].m_rect;
+			if (alphaResponds)
+			{
+				double betaNormalX = 0.0, betaNormalY = 0.0;
+				if (Math.abs(alpha.X - beta.m_x) - alpha.Radius <= PhysicsModel.EPSILON)//B is to the left of S
+					betaNormalX = 1.0;
+				else if (Math.abs(beta.m_right - alpha.X) - alpha.Radius <= PhysicsModel.EPSILON)//B is to the right of A
+					betaNormalX = -1.0;
+				if (Math.abs(alpha.Y - beta.m_y) - alpha.Radius <= PhysicsModel.EPSILON)//B is above A
+					betaNormalY = 1.0;
+				else if (Math.abs(beta.m_bottom - alpha.Y) - alpha.Radius <= PhysicsModel.EPSILON)//B is below A
+					betaNormalY = -1.0;
+
+				if (betaNormalX != 0.0 && betaNormalY != 0.0)//normalize
+				{
+					//little optimization trick - if both of the normals are non-zero, then they must each be -1 or 1
+					//so the magnitude of the vector is 2
+					//saves an expensive Math.sqrt calculation
+					betaNormalX *= PhysicsModel.ONE_OVER_SQRT_TWO;
+					betaNormalY *= PhysicsModel.ONE_OVER_SQRT_TWO;
+				}
+				else if (betaNormalX == 0.0 && betaNormalY == 0.0)//the circle's center is inside the rectangle, so there's no edge to reflect off of
+					return;
+
+				//reflects the velocity over the collision normal
+				double scale = restitution * 2.0 * (velX[a] * betaNormalX + velY[a] * betaNormalY) / (betaNormalX * betaNormalX + betaNormalY * betaNormalY);
+				velX[a] -= scale * betaNormalX;
+				velY[a] -= scale * betaNormalY;
+			}
+			else if (betaResponds)
+			{
+				//since alpha is a circle, the collision normal is the same as the line between the center of the circle and the center of the rectangle
+				double dX = alpha.X - beta.m_x - beta.m_width / 2.0,
+				dY = alpha.Y - beta.m_y - beta.m_height / 2.0;
+
+				//normalize the collision normal
+				double mag = Math.sqrt(dX * dX + dY * dY);
+				dX /= mag;
+				dY /= mag;
+
+				//reflects the velocity over the collision normal
+				double scale = restitution * 2.0 * (velX[b] * dX + velY[b] * dY) / (dX * dX + dY * dY);
+				velX[b] -= scale * dX;
+				velY[b] -= scale * dY;
+				//don't need to affect alpha - if the code is executing this branch, alpha must not have a collision response
+			}
+		}
+	}
+
+	private static final class RectangleCircle extends ContactKernel
+	{
+		@Override
+		boolean Intersects(CollisionBounds alpha, CollisionBounds beta)
+		{
+			return beta.m_circle.Intersects(alpha.m_rect);
+		}
+
+		@Override
+		void FindContact(CollisionBounds alpha, CollisionBounds beta, Contact contact)
+		{
+			//find it the other way around, then flip the normal
+			KERNELS[PhysicsModel.SHAPE_CIRCLE * SHAPE_COUNT + PhysicsModel.SHAPE_RECTANGLE].FindContact(beta, alpha, contact);
+			contact.m_normalX = -contact.m_normalX;
+			contact.m_normalY = -contact.m_normalY;
+		}
+
+		@Override
+		void Nudge(PhysicsModel physics, int moving, int other)
+		{
+			Rectangle rect = physics.m_bodyBounds[moving].m_rect;
+			double x = rect.m_x, y = rect.m_y;
+			rect.Nudge(physics.m_bodyBounds[other].m_circle);
+			physics.m_posX[moving] += rect.m_x - x;
+			physics.m_posY[moving] += rect.m_y - y;
+		}
+
+		@Override
+		void Respond(PhysicsModel physics, int a, int b, boolean alphaResponds, boolean betaResponds)
+		{
+			double[] velX = physics.m_velX, velY = physics.m_velY, mass = physics.m_mass;
+			double restitution = physics.m_coefficientRestitution;
+			Rectangle alpha = physics.m_bodyBounds[a].m_rect;
+			Circle beta = physics.m_bodyBounds[b].m_circle;
+			if (alphaResponds)
+			{
+				//since alpha is a circle, the collision normal is the same as the line between the center of the circle and the center of the rectangle
+				double dX = beta.X - alpha.m_x - alpha.m_width / 2.0,
+						dY = beta.Y - alpha.m_y - alpha.m_height / 2.0;
+
+				//normalize the collision normal
+				double mag = Math.sqrt(dX * dX + dY * dY);
+				dX /= mag;
+				dY /= mag;
+
+				//reflects the velocity over the collision normal
+				double scale = restitution * 2.0 * (velX[a] * dX + velY[a] * dY) / (dX * dX + dY * dY);
+				velX[a] -= scale * dX;
+				velY[a] -= scale * dY;
+				if (betaResponds)
+				{
+					//Netwon's 2nd law - equal and opposite reaction
+					//the scalar reflection vector must be modified to account for the different masses of the two objects so that the two forces are still equal
+					scale = scale * mass[a] / mass[b];
+					velX[b] += scale * dX;
+					velY[b] += scale * dY;
+				}
+			}
+			else if (betaResponds)
+			{
+				double alphaNormalX = 0.0, alphaNormalY = 0.0;
+				if (Math.abs(beta.X - alpha.m_x) - beta.Radius <= PhysicsModel.EPSILON)//A is to the left of B
+					alphaNormalX = 1.0;
+				else if (Math.abs(alpha.m_right - beta.X) - beta.Radius <= PhysicsModel.EPSILON)//A is to the right of B
+					alphaNormalX = -1.0;
+				if (Math.abs(beta.Y - alpha.m_y) - beta.Radius <= PhysicsModel.EPSILON)//A is above B
+					alphaNormalY = 1.0;
+				else if (Math.abs(alpha.m_bottom - beta.Y) - beta.Radius <= PhysicsModel.EPSILON)//A is below B
+					alphaNormalY = -1.0;
+
+				if (alphaNormalX != 0.0 && alphaNormalY != 0.0)//normalize
+				{
+					//little optimization trick - if both of the normals are non-zero, then they must each be -1 or 1
+					//so the magnitude of the vector is 2
+					//saves an expensive Math.sqrt calculation
+					alphaNormalX *= PhysicsModel.ONE_OVER_SQRT_TWO;
+					alphaNormalY *= PhysicsModel.ONE_OVER_SQRT_TWO;
+				}
+				else if (alphaNormalX == 0.0 && alphaNormalY == 0.0)//the circle's center is inside the rectangle, so there's no edge to reflect off of
+					return;
+				//reflects the velocity over the collision normal
+				double scale = restitution * 2.0 * (velX[b] * alphaNormalX + velY[b] * alphaNormalY) / (alphaNormalX * alphaNormalX + alphaNormalY * alphaNormalY);
+				velX[b] -= scale * alphaNormalX;
+				velY[b] -= scale * alphaNormalY;
+				//don't need to affect alpha - if the code is executing this branch, alpha must not have a collision response
+			}
+		}
+	}
+
+	private static final class RectangleRectangle extends ContactKernel
+	{
+		@Override
+		boolean Intersects(CollisionBounds alpha, CollisionBounds beta)
+		{
+			return alpha.m_rect.Intersects(beta.m_rect);
+		}
+
+		@Override
+		void FindContact(CollisionBounds alphaBounds, CollisionBounds betaBounds, Contact contact)
+		{
+			Rectangle alpha = alphaBounds.m_rect, beta = betaBounds.m_rect;
+
+			//separate along whichever axis overlaps the least
+			double dX = (beta.m_x + beta.m_right - alpha.m_x - alpha.m_right) * 0.5, dY = (beta.m_y + beta.m_bottom - alpha.m_y - alpha.m_bottom) * 0.5;
+			double overlapX = (alpha.m_width + beta.m_width) * 0.5 - (dX < 0.0 ? -dX : dX),
+					overlapY = (alpha.m_height + beta.m_height) * 0.5 - (dY < 0.0 ? -dY : dY);
+			if (overlapX < overlapY)
+			{
+				contact.m_normalX = dX < 0.0 ? -1.0 : 1.0;
+				contact.m_normalY = 0.0;
+				contact.m_depth = overlapX;
+			}
+			else
+			{
+				contact.m_normalX = 0.0;
+				contact.m_normalY = dY < 0.0 ? -1.0 : 1.0;
+				contact.m_depth = overlapY;
+			}
+		}
+
+		@Override
+		void Nudge(PhysicsModel physics, int moving, int other)
+		{
+			Rectangle rect = physics.m_bodyBounds[moving].m_rect;
+			double x = rect.m_x, y = rect.m_y;
+			rect.Nudge(physics.m_bodyBounds[other].m_rect);
+			physics.m_posX[moving] += rect.m_x - x;
+			physics.m_posY[moving] += rect.m_y - y;
+		}
+
+		@Override
+		void Respond(PhysicsModel physics, int a, int b, boolean alphaResponds, boolean betaResponds)
+		{
+			double[] velX = physics.m_velX, velY = physics.m_velY, mass = physics.m_mass;
+			double restitution = physics.m_coefficientRestitution;
+			Rectangle alpha = physics.m_bodyBounds[a].m_rect, beta = physics.m_bodyBounds[b].m_rect;
+
+			//calculate collision normal(s)
+			//since they're both rectangles, the normals will be the opposite of each other
+			double alphaNormalX = 0.0, alphaNormalY = 0.0, betaNormalX = 0.0, betaNormalY = 0.0;
+			if (Math.abs(alpha.m_right - beta.m_x) <= PhysicsModel.EPSILON)//A is to the left of B
+			{
+				alphaNormalX = 1.0;
+				betaNormalX = -1.0;
+			}
+			else if (Math.abs(beta.m_right - alpha.m_x) <= PhysicsModel.EPSILON)//A is to the right of B
+			{
+				alphaNormalX = -1.0;
+				betaNormalX = 1.0;
+			}
+			else if (Math.abs(alpha.m_bottom - beta.m_y) <= PhysicsModel.EPSILON)//A is above B
+			{
+				alphaNormalY = 1.0;
+				betaNormalY = -1.0;
+			}
+			else//A is below B
+			{
+				alphaNormalY = -1.0;
+				betaNormalY = 1.0;
+			}
+
+			if (alphaResponds)
+			{
+				//reflects the velocity over the collision normal
+				double scale = restitution * 2.0 * (velX[a] * betaNormalX + velY[a] * betaNormalY) / (betaNormalX * betaNormalX + betaNormalY * betaNormalY);
+				velX[a] -= scale * betaNormalX;
+				velY[a] -= scale * betaNormalY;
+				if (betaResponds)
+				{
+					//Netwon's 2nd law - equal and opposite reaction
+					//the scalar reflection vector must be modified to account for the different masses of the two objects so that the two forces are still equal
+					scale = scale * mass[a] / mass[b];
+
+					velX[b] += scale * betaNormalX;
+					velY[b] += scale * betaNormalY;
+				}
+			}
+			else if (betaResponds)
+			{
+				//Netwon's 2nd law - equal and opposite reaction
+				//the scalar reflection vector must be modified to account for the different masses of the two objects so that the two forces are still equal
+				double scale = restitution * 2.0 * (velX[b] * alphaNormalX + velY[b] * alphaNormalY) / (alphaNormalX * alphaNormalX + alphaNormalY * alphaNormalY);
+				velX[b] -= scale * alphaNormalX;
+				velY[b] -= scale * alphaNormalY;
+				//don't need to affect alpha - if the code is executing this branch, alpha must not have a collision response
+			}
+		}
+	}
+
+	/**
+	 * Handles any pair with a compound in it by descending into the shapes making it up, but only once the boxes enclosing them touch
+	 */
+	private static final class Compound extends ContactKernel
+	{
+		@Override
+		boolean Intersects(CollisionBounds alpha, CollisionBounds beta)
+		{
+			return alpha.Intersects(beta);
+		}
+
+		@Override
+		void FindContact(CollisionBounds alpha, CollisionBounds beta, Contact contact)
+		{
+			//whichever pair of shapes overlaps the most decides which way the two are pushed apart
+			double normalX = 0.0, normalY = 0.0, depth = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < alpha.GetPartCount(); i++)
+			{
+				CollisionBounds part = alpha.GetPart(i);
+				for (int j = 0; j < beta.GetPartCount(); j++)
+				{
+					CollisionBounds other = beta.GetPart(j);
+					if (!part.BoxIntersects(other))
+						continue;
+					Get(PhysicsModel.ShapeOf(part), PhysicsModel.ShapeOf(other)).FindContact(part, other, contact);
+					if (contact.m_depth > depth)
+					{
+						normalX = contact.m_normalX;
+						normalY = contact.m_normalY;
+						depth = contact.m_depth;
+					}
+				}
+			}
+			if (depth == Double.NEGATIVE_INFINITY)
+			{
+				//none of the shapes are close, so fall back to the line between the middles of the enclosing boxes
+				normalX = (beta.GetLeft() + beta.GetRight() - alpha.GetLeft() - alpha.GetRight()) * 0.5;
+				normalY = (beta.GetTop() + beta.GetBottom() - alpha.GetTop() - alpha.GetBottom()) * 0.5;
+				double distance = Math.sqrt(normalX * normalX + normalY * normalY);
+				if (distance == 0.0)
+					normalX = distance = 1.0;
+				normalX /= distance;
+				normalY /= distance;
+				depth = 0.0;
+			}
+			contact.m_normalX = normalX;
+			contact.m_normalY = normalY;
+			contact.m_depth = depth;
+		}
+
+		@Override
+		void Nudge(PhysicsModel physics, int moving, int other)
+		{
+			//pushing one pair of shapes apart can leave another pair overlapping, so this carries on a few times
+			CollisionBounds bounds = physics.m_bodyBounds[moving], otherBounds = physics.m_bodyBounds[other];
+			Contact contact = physics.m_kernelContact;
+			for (int i = 0; i < MAX_COMPOUND_NUDGES; i++)
+			{
+				FindContact(bounds, otherBounds, contact);
+				if (contact.m_depth <= 0.0)
+					break;
+				double dX = -contact.m_normalX * contact.m_depth, dY = -contact.m_normalY * contact.m_depth;
+				bounds.Translate(dX, dY);
+				physics.m_posX[moving] += dX;
+				physics.m_posY[moving] += dY;
+			}
+		}
+
+		@Override
+		void Respond(PhysicsModel physics, int a, int b, boolean alphaResponds, boolean betaResponds)
+		{
+			double[] velX = physics.m_velX, velY = physics.m_velY, mass = physics.m_mass;
+			Contact contact = physics.m_kernelContact;
+			FindContact(physics.m_bodyBounds[a], physics.m_bodyBounds[b], contact);
+			double inverseMassA = alphaResponds && mass[a] > 0.0 ? 1.0 / mass[a] : 0.0, inverseMassB = betaResponds && mass[b] > 0.0 ? 1.0 / mass[b] : 0.0;
+			double closing = (velX[b] - velX[a]) * contact.m_normalX + (velY[b] - velY[a]) * contact.m_normalY;
+			if (closing >= 0.0 || inverseMassA + inverseMassB == 0.0)//already separating
+				return;
+
+			//exchange an impulse along the normal of the touching shapes, split by mass
+			double impulse = -(1.0 + physics.m_coefficientRestitution) * closing / (inverseMassA + inverseMassB);
+			velX[a] -= impulse * inverseMassA * contact.m_normalX;
+			velY[a] -= impulse * inverseMassA * contact.m_normalY;
+			velX[b] += impulse * inverseMassB * contact.m_normalX;
+			velY[b] += impulse * inverseMassB * contact.m_normalY;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package MechSim.Physics;
+
+/**
+ * ContactListener that is notified when the contacts of a particular PhysicsObject begin, continue or end
+ * Events are gathered while a PhysicsModel steps, and only dispatched once the step is done
+ * @author Gurwinder Gulati
+ *
+ */
+public interface ContactListener
+{
+	/**
+	 * Notifies the ContactListener of a change in contact
+	 * @param alpha PhysicsObject the ContactListener is subscribed to
+	 * @param beta PhysicsObject touching alpha
+	 * @param type Stage of the contact
+	 */
+	public void NotifyOfContact(PhysicsObject alpha, PhysicsObject beta, ContactEventType type);
+}
@@ -0,0 +1,255 @@
+package MechSim.Physics;
+
+import java.util.Arrays;
+
+/**
+ * Iterative sequential-impulse solver for the contacts found during a step
+ * Accumulated impulses are remembered per pair of PhysicsObjects and used to warm start the next step, so resting stacks settle in a few iterations
+ * @author Gurwinder Gulati
+ *
+ */
+final class ContactSolver
+{
+	static final int INITIAL_CAPACITY = 64;
+	static final double BAUMGARTE = 0.4;//fraction of the remaining overlap removed by each position iteration
+	static final double LINEAR_SLOP = 0.01;//overlap that's left alone so resting contacts stay touching
+	static final double RESTITUTION_THRESHOLD = 0.05;//closing speeds below this don't bounce, otherwise stacks never settle
+
+	PhysicsModel m_physicsModel;
+
+	//one constraint per contact, in the same sorted order as the pairs they came from
+	int m_count;
+	long[] m_keys;
+	int[] m_slotA, m_slotB;
+	double[] m_normalX, m_normalY;//from A towards B
+	double[] m_depth;
+	double[] m_inverseMassA, m_inverseMassB;
+	double[] m_bounce;//separating speed the contact is aiming for
+	double[] m_impulse;//accumulated along the normal; never negative, since contacts can only push
+
+	//impulses from the previous step, sorted by key
+	long[] m_cacheKeys;
+	double[] m_cacheImpulses;
+	int m_cacheCount;
+
+	double[] m_correctionX, m_correctionY;//position correction of each body, indexed by slot
+	Contact m_contact;//scratch record filled in for each contact as it's added
+
+	/**
+	 * Creates a solver for the contacts of a PhysicsModel
+	 * @param physics PhysicsModel whose bodies are pushed apart
+	 */
+	ContactSolver(PhysicsModel physics)
+	{
+		m_physicsModel = physics;
+		m_keys = new long[INITIAL_CAPACITY];
+		m_slotA = new int[INITIAL_CAPACITY];
+		m_slotB = new int[INITIAL_CAPACITY];
+		m_normalX = new double[INITIAL_CAPACITY];
+		m_normalY = new double[INITIAL_CAPACITY];
+		m_depth = new double[INITIAL_CAPACITY];
+		m_inverseMassA = new double[INITIAL_CAPACITY];
+		m_inverseMassB = new double[INITIAL_CAPACITY];
+		m_bounce = new double[INITIAL_CAPACITY];
+		m_impulse = new double[INITIAL_CAPACITY];
+		m_cacheKeys = new long[INITIAL_CAPACITY];
+		m_cacheImpulses = new double[INITIAL_CAPACITY];
+		m_correctionX = new double[0];
+		m_correctionY = new double[0];
+		m_contact = new Contact();
+	}
+
+	/**
+	 * Removes every contact, keeping the impulses cached from the last solve
+	 */
+	void Clear()
+	{
+		m_count = 0;
+	}
+
+	/**
+	 * Forgets the impulses cached from the last solve
+	 */
+	void Reset()
+	{
+		m_count = 0;
+		m_cacheCount = 0;
+	}
+
+	/**
+	 * Adds a contact between two intersecting PhysicsObjects
+	 * Contacts must be added in ascending order of key for warm starting to find them
+	 * @param alpha First PhysicsObject
+	 * @param beta Second PhysicsObject
+	 * @param key Key identifying the pair between steps
+	 */
+	void Add(PhysicsObject alpha, PhysicsObject beta, long key)
+	{
+		PhysicsModel physics = m_physicsModel;
+		int a = alpha.m_slot, b = beta.m_slot;
+		double inverseMassA = InverseMass(alpha, physics.m_mass[a]), inverseMassB = InverseMass(beta, physics.m_mass[b]);
+		if (inverseMassA + inverseMassB == 0.0)//neither can be pushed
+			return;
+
+		if (m_count == m_keys.length)
+			Grow(m_count * 2);
+
+		int i = m_count;
+		Contact contact = m_contact;
+		ContactKernel.Get(physics.m_shape[a], physics.m_shape[b]).FindContact(alpha.m_bounds, beta.m_bounds, contact);
+		m_normalX[i] = contact.m_normalX;
+		m_normalY[i] = contact.m_normalY;
+		m_depth[i] = contact.m_depth;
+
+		//only bounce off of contacts that are closing quickly enough
+		double closing = (physics.m_velX[b] - physics.m_velX[a]) * m_normalX[i] + (physics.m_velY[b] - physics.m_velY[a]) * m_normalY[i];
+		m_bounce[i] = closing < -RESTITUTION_THRESHOLD ? -physics.m_coefficientRestitution * closing : 0.0;
+
+		m_keys[i] = key;
+		m_slotA[i] = a;
+		m_slotB[i] = b;
+		m_inverseMassA[i] = inverseMassA;
+		m_inverseMassB[i] = inverseMassB;
+		m_impulse[i] = 0.0;
+		m_count++;
+	}
+
+	/**
+	 * Resolves every contact added since the last Clear
+	 * @param iterations Number of passes made over the contacts for both velocities and positions
+	 */
+	void Solve(int iterations)
+	{
+		PhysicsModel physics = m_physicsModel;
+		double[] velX = physics.m_velX, velY = physics.m_velY;
+
+		//both lists are sorted by key, so a single merge finds every contact that also existed last step
+		int cached = 0;
+		for (int i = 0; i < m_count; i++)
+		{
+			while (cached < m_cacheCount && m_cacheKeys[cached] < m_keys[i])
+				cached++;
+			if (cached < m_cacheCount && m_cacheKeys[cached] == m_keys[i])
+			{
+				//warm start by applying last step's impulse up front
+				double impulse = m_cacheImpulses[cached];
+				int a = m_slotA[i], b = m_slotB[i];
+				velX[a] -= impulse * m_normalX[i] * m_inverseMassA[i];
+				velY[a] -= impulse * m_normalY[i] * m_inverseMassA[i];
+				velX[b] += impulse * m_normalX[i] * m_inverseMassB[i];
+				velY[b] += impulse * m_normalY[i] * m_inverseMassB[i];
+				m_impulse[i] = impulse;
+			}
+		}
+
+		for (int iteration = 0; iteration < iterations; iteration++)
+		{
+			for (int i = 0; i < m_count; i++)
+			{
+				int a = m_slotA[i], b = m_slotB[i];
+				double normalX = m_normalX[i], normalY = m_normalY[i];
+				double closing = (velX[b] - velX[a]) * normalX + (velY[b] - velY[a]) * normalY;
+
+				//clamp the accumulated impulse rather than each increment, so later iterations can take back too strong a push
+				double previous = m_impulse[i];
+				double impulse = previous + (m_bounce[i] - closing) / (m_inverseMassA[i] + m_inverseMassB[i]);
+				impulse = impulse > 0.0 ? impulse : 0.0;
+				m_impulse[i] = impulse;
+				impulse -= previous;
+
+				velX[a] -= impulse * normalX * m_inverseMassA[i];
+				velY[a] -= impulse * normalY * m_inverseMassA[i];
+				velX[b] += impulse * normalX * m_inverseMassB[i];
+				velY[b] += impulse * normalY * m_inverseMassB[i];
+			}
+		}
+
+		//the contacts are already in key order, so they become next step's cache as they are
+		if (m_cacheKeys.length < m_count)
+		{
+			m_cacheKeys = new long[m_keys.length];
+			m_cacheImpulses = new double[m_keys.length];
+		}
+		System.arraycopy(m_keys, 0, m_cacheKeys, 0, m_count);
+		System.arraycopy(m_impulse, 0, m_cacheImpulses, 0, m_count);
+		m_cacheCount = m_count;
+
+		CorrectPositions(iterations);
+	}
+
+	/**
+	 * Pushes overlapping bodies apart, using the overlap found when each contact was added as corrections accumulate
+	 */
+	private void CorrectPositions(int iterations)
+	{
+		PhysicsModel physics = m_physicsModel;
+		if (m_correctionX.length < physics.m_bodies.length)
+		{
+			m_correctionX = new double[physics.m_bodies.length];
+			m_correctionY = new double[physics.m_bodies.length];
+		}
+		double[] correctionX = m_correctionX, correctionY = m_correctionY;
+
+		for (int iteration = 0; iteration < iterations; iteration++)
+		{
+			for (int i = 0; i < m_count; i++)
+			{
+				int a = m_slotA[i], b = m_slotB[i];
+				double normalX = m_normalX[i], normalY = m_normalY[i];
+				double depth = m_depth[i] - ((correctionX[b] - correctionX[a]) * normalX + (correctionY[b] - correctionY[a]) * normalY);
+				if (depth <= LINEAR_SLOP)
+					continue;
+
+				double push = BAUMGARTE * (depth - LINEAR_SLOP) / (m_inverseMassA[i] + m_inverseMassB[i]);
+				correctionX[a] -= push * normalX * m_inverseMassA[i];
+				correctionY[a] -= push * normalY * m_inverseMassA[i];
+				correctionX[b] += push * normalX * m_inverseMassB[i];
+				correctionY[b] += push * normalY * m_inverseMassB[i];
+			}
+		}
+
+		//move each body once, however many contacts it's part of
+		for (int i = 0; i < m_count; i++)
+		{
+			ApplyCorrection(m_slotA[i]);
+			ApplyCorrection(m_slotB[i]);
+		}
+	}
+
+	private void ApplyCorrection(int slot)
+	{
+		double dX = m_correctionX[slot], dY = m_correctionY[slot];
+		if (dX == 0.0 && dY == 0.0)
+			return;
+
+		PhysicsModel physics = m_physicsModel;
+		physics.m_posX[slot] += dX;
+		physics.m_posY[slot] += dY;
+		physics.m_bodyBounds[slot].Translate(dX, dY);
+		physics.NotifyOfMovement(physics.m_bodies[slot]);
+		m_correctionX[slot] = 0.0;
+		m_correctionY[slot] = 0.0;
+	}
+
+	private static double InverseMass(PhysicsObject obj, double mass)
+	{
+		//static things behave as though they were infinitely heavy
+		if ((obj.m_interType != InteractionType.Kinetic && obj.m_interType != InteractionType.Passive) || mass <= 0.0)
+			return 0.0;
+		return 1.0 / mass;
+	}
+
+	private void Grow(int capacity)
+	{
+		m_keys = Arrays.copyOf(m_keys, capacity);
+		m_slotA = Arrays.copyOf(m_slotA, capacity);
+		m_slotB = Arrays.copyOf(m_slotB, capacity);
+		m_normalX = Arrays.copyOf(m_normalX, capacity);
+		m_normalY = Arrays.copyOf(m_normalY, capacity);
+		m_depth = Arrays.copyOf(m_depth, capacity);
+		m_inverseMassA = Arrays.copyOf(m_inverseMassA, capacity);
+		m_inverseMassB = Arrays.copyOf(m_inverseMassB, capacity);
+		m_bounce = Arrays.copyOf(m_bounce, capacity);
+		m_impulse = Arrays.copyOf(m_impulse, capacity);
+	}
+}
@@ -0,0 +1,373 @@
+package MechSim.Physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Broadphase that keeps PhysicsObjects in a balanced binary tree of axis-aligned bounding boxes
+ * Leaves hold boxes fattened by a margin, so a PhysicsObject is only re-inserted once it leaves its fat box
+ * Copes with PhysicsObjects of wildly different sizes, unlike a uniform grid
+ * @author Gurwinder Gulati
+ *
+ */
+final class DynamicTree implements Broadphase
+{
+	static final int NULL_NODE = -1;
+	static final int INITIAL_CAPACITY = 64;
+	static final double DEFAULT_MARGIN = 4.0;
+	
+	double m_margin;
+	int m_root;
+	
+	//node storage - a node is a leaf if it has no children, and is free if its height is -1
+	double[] m_minX, m_minY, m_maxX, m_maxY;
+	int[] m_parent, m_child1, m_child2, m_height;
+	PhysicsObject[] m_objects;
+	int m_nodeCount;
+	int m_freeList;//free nodes are chained through m_parent
+	
+	int[] m_stack;//traversal stack reused by every query
+	
+	/**
+	 * Creates an empty tree
+	 * @param margin Distance each leaf's box is fattened by on every side
+	 */
+	DynamicTree(double margin)
+	{
+		m_margin = margin;
+		m_root = NULL_NODE;
+		m_freeList = NULL_NODE;
+		
+		m_minX = new double[INITIAL_CAPACITY];
+		m_minY = new double[INITIAL_CAPACITY];
+		m_maxX = new double[INITIAL_CAPACITY];
+		m_maxY = new double[INITIAL_CAPACITY];
+		m_parent = new int[INITIAL_CAPACITY];
+		m_child1 = new int[INITIAL_CAPACITY];
+		m_child2 = new int[INITIAL_CAPACITY];
+		m_height = new int[INITIAL_CAPACITY];
+		m_objects = new PhysicsObject[INITIAL_CAPACITY];
+		m_stack = new int[INITIAL_CAPACITY];
+	}
+
+	@Override
+	public void Insert(PhysicsObject obj)
+	{
+		int leaf = AllocateNode();
+		m_objects[leaf] = obj;
+		m_height[leaf] = 0;
+		StoreFatBox(leaf, obj.m_bounds);
+		InsertLeaf(leaf);
+		obj.m_proxy = leaf;
+	}
+
+	@Override
+	public void Remove(PhysicsObject obj)
+	{
+		int leaf = obj.m_proxy;
+		if (leaf < 0)
+			return;
+		
+		RemoveLeaf(leaf);
+		FreeNode(leaf);
+		obj.m_proxy = -1;
+	}
+
+	@Override
+	public void Update(PhysicsObject obj)
+	{
+		int leaf = obj.m_proxy;
+		if (leaf < 0)
+			return;
+		
+		//as long as the tight box is still inside the fat box, the tree is still valid
+		CollisionBounds bounds = obj.m_bounds;
+		if (bounds.GetLeft() >= m_minX[leaf] && bounds.GetTop() >= m_minY[leaf] && bounds.GetRight() <= m_maxX[leaf] && bounds.GetBottom() <= m_maxY[leaf])
+			return;
+		
+		RemoveLeaf(leaf);
+		StoreFatBox(leaf, bounds);
+		InsertLeaf(leaf);
+	}
+
+	@Override
+	public void Query(double left, double top, double right, double bottom, List<PhysicsObject> results)
+	{
+		if (m_root == NULL_NODE)
+			return;
+		
+		int stackSize = 0;
+		m_stack[stackSize++] = m_root;
+		while (stackSize > 0)
+		{
+			int node = m_stack[--stackSize];
+			if (m_minX[node] > right || m_maxX[node] < left || m_minY[node] > bottom || m_maxY[node] < top)
+				continue;
+			
+			if (m_child1[node] == NULL_NODE)
+				results.add(m_objects[node]);
+			else
+			{
+				if (stackSize + 2 > m_stack.length)
+					m_stack = Arrays.copyOf(m_stack, m_stack.length * 2);
+				m_stack[stackSize++] = m_child1[node];
+				m_stack[stackSize++] = m_child2[node];
+			}
+		}
+	}
+
+	@Override
+	public void FindPairs(PairList pairs)
+	{
+		if (m_root == NULL_NODE)
+			return;
+		
+		for (int leaf = 0; leaf < m_nodeCount; leaf++)
+		{
+			if (m_height[leaf] != 0)//internal or free node
+				continue;
+			
+			//sleeping things only turn up as the other half of a pair found from something awake, so the search costs nothing for them
+			PhysicsObject alpha = m_objects[leaf];
+			if (PhysicsModel.IsAsleep(alpha))
+				continue;
+			double left = m_minX[leaf], top = m_minY[leaf], right = m_maxX[leaf], bottom = m_maxY[leaf];
+			
+			int stackSize = 0;
+			m_stack[stackSize++] = m_root;
+			while (stackSize > 0)
+			{
+				int node = m_stack[--stackSize];
+				if (m_minX[node] > right || m_maxX[node] < left || m_minY[node] > bottom || m_maxY[node] < top)
+					continue;
+				
+				if (m_child1[node] == NULL_NODE)
+				{
+					//only report a pair from its lower-numbered leaf so that it's reported once, unless the other leaf doesn't search
+					if (node > leaf || (node != leaf && PhysicsModel.IsAsleep(m_objects[node])))
+						pairs.Add(alpha, m_objects[node]);
+				}
+				else
+				{
+					if (stackSize + 2 > m_stack.length)
+						m_stack = Arrays.copyOf(m_stack, m_stack.length * 2);
+					m_stack[stackSize++] = m_child1[node];
+					m_stack[stackSize++] = m_child2[node];
+				}
+			}
+		}
+	}
+	
+	private void StoreFatBox(int leaf, CollisionBounds bounds)
+	{
+		m_minX[leaf] = bounds.GetLeft() - m_margin;
+		m_minY[leaf] = bounds.GetTop() - m_margin;
+		m_maxX[leaf] = bounds.GetRight() + m_margin;
+		m_maxY[leaf] = bounds.GetBottom() + m_margin;
+	}
+	
+	private double UnionPerimeter(int a, int b)
+	{
+		double width = (m_maxX[a] > m_maxX[b] ? m_maxX[a] : m_maxX[b]) - (m_minX[a] < m_minX[b] ? m_minX[a] : m_minX[b]);
+		double height = (m_maxY[a] > m_maxY[b] ? m_maxY[a] : m_maxY[b]) - (m_minY[a] < m_minY[b] ? m_minY[a] : m_minY[b]);
+		return 2.0 * (width + height);
+	}
+	
+	private double Perimeter(int node)
+	{
+		return 2.0 * (m_maxX[node] - m_minX[node] + m_maxY[node] - m_minY[node]);
+	}
+	
+	private void StoreUnion(int node, int a, int b)
+	{
+		m_minX[node] = m_minX[a] < m_minX[b] ? m_minX[a] : m_minX[b];
+		m_minY[node] = m_minY[a] < m_minY[b] ? m_minY[a] : m_minY[b];
+		m_maxX[node] = m_maxX[a] > m_maxX[b] ? m_maxX[a] : m_maxX[b];
+		m_maxY[node] = m_maxY[a] > m_maxY[b] ? m_maxY[a] : m_maxY[b];
+	}
+	
+	private void InsertLeaf(int leaf)
+	{
+		if (m_root == NULL_NODE)
+		{
+			m_root = leaf;
+			m_parent[leaf] = NULL_NODE;
+			return;
+		}
+		
+		//descend towards the sibling that increases the total perimeter of the tree the least
+		int index = m_root;
+		while (m_child1[index] != NULL_NODE)
+		{
+			int child1 = m_child1[index], child2 = m_child2[index];
+			
+			double combined = UnionPerimeter(index, leaf);
+			double cost = 2.0 * combined;//cost of making a new parent for this node and the leaf
+			double inheritance = 2.0 * (combined - Perimeter(index));//cost pushed down onto every child
+			
+			double cost1 = UnionPerimeter(child1, leaf) + inheritance;
+			if (m_child1[child1] != NULL_NODE)
+				cost1 -= Perimeter(child1);
+			double cost2 = UnionPerimeter(child2, leaf) + inheritance;
+			if (m_child1[child2] != NULL_NODE)
+				cost2 -= Perimeter(child2);
+			
+			if (cost < cost1 && cost < cost2)
+				break;
+			index = cost1 < cost2 ? child1 : child2;
+		}
+		int sibling = index;
+		
+		//make a new parent for the leaf and its sibling
+		int oldParent = m_parent[sibling];
+		int newParent = AllocateNode();
+		m_parent[newParent] = oldParent;
+		m_objects[newParent] = null;
+		m_height[newParent] = m_height[sibling] + 1;
+		StoreUnion(newParent, leaf, sibling);
+		m_child1[newParent] = sibling;
+		m_child2[newParent] = leaf;
+		m_parent[sibling] = newParent;
+		m_parent[leaf] = newParent;
+		
+		if (oldParent == NULL_NODE)
+			m_root = newParent;
+		else if (m_child1[oldParent] == sibling)
+			m_child1[oldParent] = newParent;
+		else
+			m_child2[oldParent] = newParent;
+		
+		Refit(m_parent[leaf]);
+	}
+	
+	private void RemoveLeaf(int leaf)
+	{
+		if (leaf == m_root)
+		{
+			m_root = NULL_NODE;
+			return;
+		}
+		
+		//the leaf's sibling takes the place of their parent
+		int parent = m_parent[leaf], grandParent = m_parent[parent];
+		int sibling = m_child1[parent] == leaf ? m_child2[parent] : m_child1[parent];
+		FreeNode(parent);
+		
+		if (grandParent == NULL_NODE)
+		{
+			m_root = sibling;
+			m_parent[sibling] = NULL_NODE;
+			return;
+		}
+		
+		if (m_child1[grandParent] == parent)
+			m_child1[grandParent] = sibling;
+		else
+			m_child2[grandParent] = sibling;
+		m_parent[sibling] = grandParent;
+		Refit(grandParent);
+	}
+	
+	private void Refit(int index)
+	{
+		//walk back up to the root, rebalancing and recomputing heights and boxes on the way
+		while (index != NULL_NODE)
+		{
+			index = Balance(index);
+			
+			int child1 = m_child1[index], child2 = m_child2[index];
+			m_height[index] = 1 + (m_height[child1] > m_height[child2] ? m_height[child1] : m_height[child2]);
+			StoreUnion(index, child1, child2);
+			
+			index = m_parent[index];
+		}
+	}
+	
+	private int Balance(int a)
+	{
+		if (m_child1[a] == NULL_NODE || m_height[a] < 2)
+			return a;
+		
+		int b = m_child1[a], c = m_child2[a];
+		int balance = m_height[c] - m_height[b];
+		
+		if (balance > 1)
+			return Rotate(a, c, b, false);
+		if (balance < -1)
+			return Rotate(a, b, c, true);
+		return a;
+	}
+	
+	private int Rotate(int a, int up, int stay, boolean upIsChild1)
+	{
+		//the taller child of a moves up to take a's place, and a adopts one of its children
+		int f = m_child1[up], g = m_child2[up];
+		
+		m_child1[up] = a;
+		m_parent[up] = m_parent[a];
+		m_parent[a] = up;
+		
+		if (m_parent[up] == NULL_NODE)
+			m_root = up;
+		else if (m_child1[m_parent[up]] == a)
+			m_child1[m_parent[up]] = up;
+		else
+			m_child2[m_parent[up]] = up;
+		
+		//keep the taller grandchild under the node that moved up
+		int keep = m_height[f] > m_height[g] ? f : g, give = keep == f ? g : f;
+		m_child2[up] = keep;
+		if (upIsChild1)
+			m_child1[a] = give;
+		else
+			m_child2[a] = give;
+		m_parent[give] = a;
+		
+		StoreUnion(a, stay, give);
+		StoreUnion(up, a, keep);
+		m_height[a] = 1 + (m_height[stay] > m_height[give] ? m_height[stay] : m_height[give]);
+		m_height[up] = 1 + (m_height[a] > m_height[keep] ? m_height[a] : m_height[keep]);
+		return up;
+	}
+	
+	private int AllocateNode()
+	{
+		int node;
+		if (m_freeList != NULL_NODE)
+		{
+			node = m_freeList;
+			m_freeList = m_parent[node];
+		}
+		else
+		{
+			if (m_nodeCount == m_parent.length)
+			{
+				int capacity = m_nodeCount * 2;
+				m_minX = Arrays.copyOf(m_minX, capacity);
+				m_minY = Arrays.copyOf(m_minY, capacity);
+				m_maxX = Arrays.copyOf(m_maxX, capacity);
+				m_maxY = Arrays.copyOf(m_maxY, capacity);
+				m_parent = Arrays.copyOf(m_parent, capacity);
+				m_child1 = Arrays.copyOf(m_child1, capacity);
+				m_child2 = Arrays.copyOf(m_child2, capacity);
+				m_height = Arrays.copyOf(m_height, capacity);
+				m_objects = Arrays.copyOf(m_objects, capacity);
+			}
+			node = m_nodeCount++;
+		}
+		
+		m_parent[node] = NULL_NODE;
+		m_child1[node] = NULL_NODE;
+		m_child2[node] = NULL_NODE;
+		m_height[node] = 0;
+		return node;
+	}
+	
+	private void FreeNode(int node)
+	{
+		m_objects[node] = null;
+		m_height[node] = -1;
+		m_parent[node] = m_freeList;
+		m_freeList = node;
+	}
+}
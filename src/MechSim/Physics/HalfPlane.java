@@ -0,0 +1,159 @@
+package MechSim.Physics;
+
+import java.awt.Graphics2D;
+
+/**
+ * An infinite straight wall that fills everything on one side of a line, such as one border of an arena
+ * Checking a body against it takes a single dot product, and nothing can tunnel through it since it has no far side
+ * @author Gurwinder Gulati
+ *
+ */
+public final class HalfPlane extends StaticCollider
+{
+	static final double WIREFRAME_LENGTH = 100000.0;//how far the line is drawn either way when the screen's extent isn't known
+
+	double m_normalX, m_normalY;//unit direction pointing away from the wall, into the open side
+	double m_offset;//dot product of the normal with every point on the surface of the wall
+	Contact m_contact;
+
+	/**
+	 * Creates a wall filling everything behind a line
+	 * @param physics PhysicsModel the wall will be added to
+	 * @param x X position of any point on the surface of the wall
+	 * @param y Y position of any point on the surface of the wall
+	 * @param normalX X component of the direction facing away from the wall, into the open side; needn't be normalized
+	 * @param normalY Y component of the direction facing away from the wall, into the open side; needn't be normalized
+	 */
+	public HalfPlane(PhysicsModel physics, double x, double y, double normalX, double normalY)
+	{
+		super(physics);
+		double length = Math.sqrt(normalX * normalX + normalY * normalY);
+		m_normalX = length > 0.0 ? normalX / length : 0.0;
+		m_normalY = length > 0.0 ? normalY / length : -1.0;
+		m_offset = m_normalX * x + m_normalY * y;
+		m_contact = new Contact();
+	}
+
+	/**
+	 * Creates and adds four walls that keep everything inside of a rectangle
+	 * @param physics PhysicsModel to add the walls to
+	 * @param x X position of the left edge of the arena
+	 * @param y Y position of the top edge of the arena
+	 * @param width Width of the arena
+	 * @param height Height of the arena
+	 * @return The left, top, right and bottom walls, in that order
+	 */
+	public static HalfPlane[] AddArena(PhysicsModel physics, double x, double y, double width, double height)
+	{
+		HalfPlane[] walls = new HalfPlane[] {
+			new HalfPlane(physics, x, y, 1.0, 0.0),
+			new HalfPlane(physics, x, y, 0.0, 1.0),
+			new HalfPlane(physics, x + width, y + height, -1.0, 0.0),
+			new HalfPlane(physics, x + width, y + height, 0.0, -1.0)
+		};
+		for (int i = 0; i < walls.length; i++)
+			physics.AddCollider(walls[i]);
+		return walls;
+	}
+
+	/**
+	 * @return X component of the direction facing away from the wall
+	 */
+	public double GetNormalX() { return m_normalX; }
+
+	/**
+	 * @return Y component of the direction facing away from the wall
+	 */
+	public double GetNormalY() { return m_normalY; }
+
+	/**
+	 * @param x X position of the point
+	 * @param y Y position of the point
+	 * @return Distance from the surface of the wall to the point, which is negative behind the surface
+	 */
+	public double DistanceTo(double x, double y) { return m_normalX * x + m_normalY * y - m_offset; }
+
+	@Override
+	boolean Collide(PhysicsModel physics, int slot)
+	{
+		//a circle reaches its radius towards the wall, and a rectangle reaches whichever of its corners is furthest back
+		double normalX = m_normalX, normalY = m_normalY;
+		double depth;
+		if (physics.m_shape[slot] != PhysicsModel.SHAPE_COMPOUND)
+		{
+			double reach = physics.m_radius[slot];
+			if (reach == Double.POSITIVE_INFINITY)
+				reach = (normalX < 0.0 ? -normalX : normalX) * physics.m_extentX[slot] + (normalY < 0.0 ? -normalY : normalY) * physics.m_extentY[slot];
+			depth = reach - DistanceTo(physics.m_posX[slot] + physics.m_offsetX[slot], physics.m_posY[slot] + physics.m_offsetY[slot]);
+		}
+		else
+		{
+			//a compound reaches as far as the furthest of its shapes does
+			CollisionBounds bounds = physics.m_bodyBounds[slot];
+			depth = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < bounds.GetPartCount(); i++)
+			{
+				double partDepth = -Gap(bounds.GetPart(i));
+				depth = partDepth > depth ? partDepth : depth;
+			}
+		}
+		if (depth < 0.0)
+			return false;
+
+		m_contact.m_normalX = -normalX;
+		m_contact.m_normalY = -normalY;
+		m_contact.m_depth = depth;
+		physics.ResolveStaticContact(slot, m_contact);
+		return true;
+	}
+
+	@Override
+	double TimeOfImpact(CollisionBounds bounds, double dX, double dY)
+	{
+		if (bounds.m_boundsType == BoundsType.Compound)
+			return CompoundTimeOfImpact(bounds, dX, dY);
+		double gap = Gap(bounds);
+		double approach = -(m_normalX * dX + m_normalY * dY);
+		if (gap <= 0.0 || approach <= 0.0)
+			return Double.POSITIVE_INFINITY;//already touching, or moving away
+		return gap / approach;
+	}
+
+	/**
+	 * @return Distance between the surface of the wall and a circle or rectangle, which is negative if they overlap
+	 */
+	private double Gap(CollisionBounds bounds)
+	{
+		double normalX = m_normalX, normalY = m_normalY;
+		double extentX = (bounds.GetRight() - bounds.GetLeft()) * 0.5, extentY = (bounds.GetBottom() - bounds.GetTop()) * 0.5;
+		double reach = bounds.m_boundsType == BoundsType.Circle ? bounds.m_circle.Radius
+				: (normalX < 0.0 ? -normalX : normalX) * extentX + (normalY < 0.0 ? -normalY : normalY) * extentY;
+		return DistanceTo(bounds.GetLeft() + extentX, bounds.GetTop() + extentY) - reach;
+	}
+
+	@Override
+	double CastRay(Ray ray, double maxDistance)
+	{
+		double distance = ray.DistanceTo(this);
+		return distance < maxDistance ? distance : Double.MAX_VALUE;
+	}
+
+	@Override
+	void RenderWireframe(Graphics2D g)
+	{
+		//draw along the surface from the point nearest the middle of the screen, far enough to cross it
+		double centerX = 0.0, centerY = 0.0, length = WIREFRAME_LENGTH;
+		java.awt.Rectangle clip = g.getClipBounds();
+		if (clip != null)
+		{
+			centerX = clip.getCenterX();
+			centerY = clip.getCenterY();
+			length = clip.width + clip.height;
+		}
+		double distance = DistanceTo(centerX, centerY);
+		double x = centerX - m_normalX * distance, y = centerY - m_normalY * distance;
+
+		g.setColor(m_object.CollidedLastFrame() ? PhysicsObject.COLLIDING_COLOR : PhysicsObject.NOT_COLLIDING_COLOR);
+		g.drawLine((int)(x + m_normalY * length), (int)(y - m_normalX * length), (int)(x - m_normalY * length), (int)(y + m_normalX * length));
+	}
+}
@@ -0,0 +1,18 @@
+package MechSim.Physics;
+
+/**
+ * Scheme used by a PhysicsModel to advance the packed positions and velocities of its bodies over a step
+ * @author Gurwinder Gulati
+ *
+ */
+interface Integrator
+{
+	/**
+	 * Advances every registered body in one pass, and records how far each one moved in m_dispX and m_dispY
+	 * Bodies with no velocity or acceleration, which includes every sleeping body, come out exactly where they started
+	 * @param physics PhysicsModel whose packed state is advanced
+	 * @param timeDelta Length of the step
+	 * @param friction Fraction of velocity kept over the whole step
+	 */
+	void Integrate(PhysicsModel physics, double timeDelta, double friction);
+}
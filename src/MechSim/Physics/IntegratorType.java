@@ -0,0 +1,25 @@
+package MechSim.Physics;
+
+/**
+ * Schemes a PhysicsModel can use to advance PhysicsObjects over a step
+ * @author Gurwinder Gulati
+ *
+ */
+public enum IntegratorType
+{
+	/**
+	 * Updates velocity first, then moves by the new velocity
+	 * Cheapest, and stays stable with springs and oscillators, but loses accuracy under strong acceleration
+	 */
+	SemiImplicitEuler,
+	/**
+	 * Moves by the old velocity plus half a step of acceleration, then updates velocity
+	 * Exact for constant acceleration, so long steps still follow the right path
+	 */
+	Verlet,
+	/**
+	 * Fourth order Runge-Kutta over acceleration and friction together
+	 * Most accurate when friction is significant, for the same cost as the others
+	 */
+	RK4
+}
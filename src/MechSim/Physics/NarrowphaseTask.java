@@ -0,0 +1,44 @@
+package MechSim.Physics;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task that tests a range of a PhysicsModel's candidate pairs for intersection
+ * Testing only reads the world, so ranges can safely be tested on different threads
+ * @author Gurwinder Gulati
+ *
+ */
+@SuppressWarnings("serial")
+final class NarrowphaseTask extends RecursiveAction
+{
+	static final int GRAIN_SIZE = 256;//pairs tested by a single task without splitting further
+	
+	PhysicsModel m_physicsModel;
+	int m_start, m_end;
+	
+	/**
+	 * Creates a task that tests a range of candidate pairs
+	 * @param physics PhysicsModel whose candidate pairs are tested
+	 * @param start Index of the first pair to test
+	 * @param end Index one past the last pair to test
+	 */
+	NarrowphaseTask(PhysicsModel physics, int start, int end)
+	{
+		m_physicsModel = physics;
+		m_start = start;
+		m_end = end;
+	}
+
+	@Override
+	protected void compute()
+	{
+		if (m_end - m_start <= GRAIN_SIZE)
+		{
+			m_physicsModel.TestPairs(m_start, m_end);
+			return;
+		}
+		
+		int middle = (m_start + m_end) >>> 1;
+		invokeAll(new NarrowphaseTask(m_physicsModel, m_start, middle), new NarrowphaseTask(m_physicsModel, middle, m_end));
+	}
+}
@@ -0,0 +1,28 @@
+package MechSim.Physics;
+
+/**
+ * Cheap first test of candidate pairs against the packed bounds of their bodies, before their shapes are tested exactly
+ * @author Gurwinder Gulati
+ *
+ */
+interface OverlapFilter
+{
+	/**
+	 * Rejects every candidate pair whose bodies are too far apart to touch
+	 * Only reads the world, so disjoint ranges may be filtered on different threads at the same time
+	 * @param physics PhysicsModel the bodies are registered with
+	 * @param slotsA Packed index of the first body of each pair
+	 * @param slotsB Packed index of the second body of each pair
+	 * @param results Result of each pair so far; pairs found to be apart are set to PhysicsModel.PAIR_MISS
+	 * @param start Index of the first pair to filter
+	 * @param end Index one past the last pair to filter
+	 */
+	void Filter(PhysicsModel physics, int[] slotsA, int[] slotsB, byte[] results, int start, int end);
+	
+	/**
+	 * Makes sure any scratch space the filter needs is there for every pair, before ranges of them are filtered
+	 * Called on the stepping thread, so nothing is allocated while filtering
+	 * @param capacity Number of pairs that may be filtered
+	 */
+	void Reserve(int capacity);
+}
@@ -0,0 +1,154 @@
+package MechSim.Physics;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of pairs of PhysicsObjects that may be colliding
+ * Storage only ever grows, so refilling the list every frame does not allocate once it has warmed up
+ * @author Gurwinder Gulati
+ *
+ */
+final class PairList
+{
+	static final int INITIAL_CAPACITY = 64;
+	static final int INSERTION_SORT_THRESHOLD = 16;
+	
+	PhysicsObject[] m_alphas, m_betas;
+	long[] m_keys;//filled in by Sort
+	int m_count;
+	
+	/**
+	 * Creates an empty list of pairs
+	 */
+	PairList()
+	{
+		m_alphas = new PhysicsObject[INITIAL_CAPACITY];
+		m_betas = new PhysicsObject[INITIAL_CAPACITY];
+		m_keys = new long[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * Empties the list, keeping its storage for reuse
+	 */
+	void Clear()
+	{
+		//drop references so unregistered PhysicsObjects can still be garbage collected
+		Arrays.fill(m_alphas, 0, m_count, null);
+		Arrays.fill(m_betas, 0, m_count, null);
+		m_count = 0;
+	}
+	
+	/**
+	 * Appends a pair to the list
+	 * @param alpha First PhysicsObject of the pair
+	 * @param beta Second PhysicsObject of the pair
+	 */
+	void Add(PhysicsObject alpha, PhysicsObject beta)
+	{
+		if (m_count == m_alphas.length)
+		{
+			m_alphas = Arrays.copyOf(m_alphas, m_count * 2);
+			m_betas = Arrays.copyOf(m_betas, m_count * 2);
+			m_keys = Arrays.copyOf(m_keys, m_count * 2);
+		}
+		m_alphas[m_count] = alpha;
+		m_betas[m_count] = beta;
+		m_count++;
+	}
+	
+	/**
+	 * Appends a pair to the list along with its sorting key
+	 * @param alpha First PhysicsObject of the pair
+	 * @param beta Second PhysicsObject of the pair
+	 * @param key Key identifying the pair, as calculated by Sort
+	 */
+	void Add(PhysicsObject alpha, PhysicsObject beta, long key)
+	{
+		Add(alpha, beta);
+		m_keys[m_count - 1] = key;
+	}
+	
+	/**
+	 * Puts the pairs into a canonical order that doesn't depend on how they were found
+	 * Each pair is flipped so alpha has the lower id, then the pairs are sorted by id
+	 */
+	void Sort()
+	{
+		for (int i = 0; i < m_count; i++)
+		{
+			if (m_alphas[i].m_id > m_betas[i].m_id)
+			{
+				PhysicsObject cache = m_alphas[i];
+				m_alphas[i] = m_betas[i];
+				m_betas[i] = cache;
+			}
+			m_keys[i] = ((long)m_alphas[i].m_id << 32) | m_betas[i].m_id;
+		}
+		
+		//the three arrays have to be permuted together, so sort in place rather than with Arrays.sort
+		Sort(0, m_count - 1);
+	}
+	
+	private void Sort(int low, int high)
+	{
+		while (high - low > INSERTION_SORT_THRESHOLD)
+		{
+			//median-of-three pivot keeps already sorted input - the common case between frames - from degrading
+			int middle = (low + high) >>> 1;
+			if (m_keys[middle] < m_keys[low])
+				Swap(middle, low);
+			if (m_keys[high] < m_keys[low])
+				Swap(high, low);
+			if (m_keys[high] < m_keys[middle])
+				Swap(high, middle);
+			long pivot = m_keys[middle];
+			
+			int i = low, j = high;
+			while (i <= j)
+			{
+				while (m_keys[i] < pivot)
+					i++;
+				while (m_keys[j] > pivot)
+					j--;
+				if (i <= j)
+					Swap(i++, j--);
+			}
+			
+			//recurse into the smaller half and loop on the larger one to bound the stack depth
+			if (j - low < high - i)
+			{
+				Sort(low, j);
+				low = i;
+			}
+			else
+			{
+				Sort(i, high);
+				high = j;
+			}
+		}
+		
+		for (int i = low + 1; i <= high; i++)
+		{
+			for (int j = i; j > low && m_keys[j] < m_keys[j - 1]; j--)
+				Swap(j, j - 1);
+		}
+	}
+	
+	private void Swap(int i, int j)
+	{
+		long key = m_keys[i];
+		m_keys[i] = m_keys[j];
+		m_keys[j] = key;
+		PhysicsObject cache = m_alphas[i];
+		m_alphas[i] = m_alphas[j];
+		m_alphas[j] = cache;
+		cache = m_betas[i];
+		m_betas[i] = m_betas[j];
+		m_betas[j] = cache;
+	}
+	
+	/**
+	 * @return Number of pairs in the list
+	 */
+	int GetCount() { return m_count; }
+}
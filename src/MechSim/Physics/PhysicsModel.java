@@ -3,8 +3,11 @@ package MechSim.Physics;
 import java.awt.Graphics2D;
 import java.awt.image.ImageObserver;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import MechSim.Graphics.SelfRendering;
 
@@ -17,12 +20,96 @@ import MechSim.Graphics.SelfRendering;
 public final class PhysicsModel implements SelfRendering
 {
 	public static final double EPSILON = .001;
+	public static final int INVALID_HANDLE = -1;
+	static final int HANDLE_INDEX_BITS = 20, HANDLE_INDEX_MASK = (1 << HANDLE_INDEX_BITS) - 1;
+	static final int HANDLE_GENERATION_MASK = (1 << (31 - HANDLE_INDEX_BITS)) - 1;//keeps handles positive
 	static final double ONE_OVER_SQRT_TWO = 1.0 / Math.sqrt(2.0);
+	static final double DEFAULT_GRID_CELL_SIZE = 64.0;
+	static final int INITIAL_BODY_CAPACITY = 64;
+	static final byte SHAPE_CIRCLE = 0, SHAPE_RECTANGLE = 1, SHAPE_COMPOUND = 2;
+	static final byte PAIR_MISS = 0, PAIR_HIT = 1, PAIR_HIT_SWAPPED = 2;//results of testing a candidate pair
+	static final double DEFAULT_SLEEP_VELOCITY = .005;
+	static final double DEFAULT_SLEEP_DELAY = 500.0;
+	static final int PARALLEL_NARROWPHASE_THRESHOLD = 512;//fewer pairs than this aren't worth handing to other threads
+	static final int MAX_COLLIDER_PASSES = 8;//most times a body is checked against the static colliders in one step, for when being pushed out of one pushes it into another
 	
 	double m_friction;
+	double m_frictionFactor, m_frictionTimeDelta;//friction over a whole step, cached for as long as the step length stays the same
 	double m_coefficientRestitution;
 	
-	List<PhysicsObject> m_objects;
+	//state of every registered PhysicsObject, stored contiguously and indexed by PhysicsObject.m_slot
+	PhysicsObject[] m_bodies;
+	CollisionBounds[] m_bodyBounds;
+	double[] m_posX, m_posY;
+	double[] m_velX, m_velY;
+	double[] m_accX, m_accY;
+	double[] m_dispX, m_dispY;//distance moved during the current step
+	double[] m_mass;
+	byte[] m_shape;
+	double[] m_extentX, m_extentY;//radius, or half of the width and height
+	double[] m_offsetX, m_offsetY;//from the position to the center of the shape
+	double[] m_radius;//radius of a circle, or infinity for shapes that aren't round, so pairs of any shapes can be filtered alike
+	boolean[] m_collided;
+	boolean[] m_awake;
+	boolean[] m_moved;//whether or not each body has moved since triggers were last checked
+	double[] m_sleepTime;//how long each body has been moving slower than m_sleepVelocity
+	int[] m_islandNext;//links the bodies of a sleeping island into a ring; an awake body links to itself
+	int[] m_islandParent;//union-find forest of touching bodies, rebuilt every step
+	double[] m_islandSleepTime;//shortest sleep time in each island, indexed by the island's root
+	boolean[] m_dormant;//whether or not each body is frozen for being outside of every activation region
+	double[] m_frozenVelX, m_frozenVelY;//velocity of each frozen body when it was frozen
+	double[] m_frozenTime;//m_time when each frozen body was frozen
+	int m_bodyCount;
+	int m_nextID;
+	
+	//handles stay valid for as long as their PhysicsObject is registered, and are never mistaken for a later PhysicsObject in the same entry
+	PhysicsObject[] m_handleObjects;
+	int[] m_handleGenerations;
+	int[] m_freeHandles;
+	int m_handleCount, m_freeHandleCount;
+	
+	//registrations and unregistrations requested during a step, applied in order once it's done
+	boolean m_stepping;
+	PhysicsObject[] m_pendingObjects;
+	boolean[] m_pendingRegistrations;
+	int m_pendingCount;
+	
+	Broadphase m_broadphase;
+	BroadphaseType m_broadphaseType;
+	double m_gridCellSize;
+	List<PhysicsObject> m_candidates;//scratch list reused by every broadphase query
+	PairList m_pairs;//scratch list reused by every broadphase pair search
+	StaticIndex m_staticIndex;//Static PhysicsObjects, kept apart from the broadphase since they don't move
+	boolean m_staticIndexDirty;//whether or not a Static PhysicsObject has come, gone or moved since the index was built
+	List<StaticCollider> m_colliders;//static geometry that isn't made of PhysicsObjects, checked by everything that moves
+	boolean[] m_colliderTouched;//scratch flags of which colliders the current body touched
+	boolean m_staticPushed;//whether or not ResolveStaticContact has moved a body since it was last cleared
+	Contact m_kernelContact;//scratch contact for ContactKernels nudging and responding during the single-threaded collision response
+	DynamicTree m_triggers;//Ghost PhysicsObjects, which only ever report overlaps
+	PairList m_triggerPairs;//scratch list of Ghosts paired with things that may overlap them
+	PairList m_overlaps, m_nextOverlaps;//Ghosts and what overlapped them as of the last step, and the one being built to replace it
+	PairList m_contacts;//pairs found to be colliding during the current step
+	PairList m_previousContacts, m_nextContacts;//pairs touching as of the last step, and the one being built to replace it
+	PairList m_events;//contact events found during the current step, dispatched once it's done
+	ContactEventType[] m_eventTypes;//type of each event, indexed the same as m_events
+	byte[] m_pairResults;//result of testing each candidate pair, indexed the same as m_pairs
+	int[] m_pairSlotsA, m_pairSlotsB;//packed index of the alpha and beta of each candidate pair, indexed the same as m_pairs
+	OverlapFilter m_overlapFilter;
+	ScalarOverlapFilter m_scalarOverlapFilter;
+	boolean m_parallelNarrowphase;
+	int m_substeps;
+	Integrator m_integrator;
+	IntegratorType m_integratorType;
+	ContactSolver m_solver;
+	int m_solverIterations;//0 uses the original one-pass nudge and reflection instead of the solver
+	boolean m_sleepingEnabled;
+	double m_sleepVelocity, m_sleepDelay;
+	List<PhysicsObject> m_activators;//PhysicsObjects with activation regions, outside of which moving things are frozen
+	List<PhysicsObject> m_regionCandidates;//scratch list of PhysicsObjects found in an activation region
+	int m_dormantInterval;//steps between the coarse updates of each frozen body, or 0 to keep it frozen until a region reaches it
+	int m_dormantCount;
+	int m_activationStep;//steps taken with activation regions, which staggers the coarse updates
+	double m_time;//total time stepped, which frozen bodies catch up to once they're thawed
 	
 	/**
 	 * Initializes a Newtonian physics model
@@ -30,381 +117,1705 @@ public final class PhysicsModel implements SelfRendering
 	public PhysicsModel()
 	{
 		m_friction = 1.0;//no friction
+		m_frictionTimeDelta = Double.NaN;
+		m_substeps = 1;
+		SetIntegrator(IntegratorType.Verlet);
+		m_solver = new ContactSolver(this);
 		m_coefficientRestitution = 1.0;//perfectly inelastic collisions
-		m_objects = new ArrayList<PhysicsObject>();
+		AllocateBodies(INITIAL_BODY_CAPACITY);
+		m_handleObjects = new PhysicsObject[INITIAL_BODY_CAPACITY];
+		m_handleGenerations = new int[INITIAL_BODY_CAPACITY];
+		m_freeHandles = new int[INITIAL_BODY_CAPACITY];
+		m_pendingObjects = new PhysicsObject[INITIAL_BODY_CAPACITY];
+		m_pendingRegistrations = new boolean[INITIAL_BODY_CAPACITY];
+		
+		m_gridCellSize = DEFAULT_GRID_CELL_SIZE;
+		m_candidates = new ArrayList<PhysicsObject>();
+		m_pairs = new PairList();
+		m_staticIndex = new StaticIndex();
+		m_colliders = new ArrayList<StaticCollider>();
+		m_colliderTouched = new boolean[0];
+		m_kernelContact = new Contact();
+		m_triggers = new DynamicTree(DynamicTree.DEFAULT_MARGIN);
+		m_triggerPairs = new PairList();
+		m_overlaps = new PairList();
+		m_nextOverlaps = new PairList();
+		m_contacts = new PairList();
+		m_previousContacts = new PairList();
+		m_nextContacts = new PairList();
+		m_events = new PairList();
+		m_eventTypes = new ContactEventType[PairList.INITIAL_CAPACITY];
+		m_pairResults = new byte[PairList.INITIAL_CAPACITY];
+		m_pairSlotsA = new int[PairList.INITIAL_CAPACITY];
+		m_pairSlotsB = new int[PairList.INITIAL_CAPACITY];
+		m_scalarOverlapFilter = new ScalarOverlapFilter();
+		SetVectorNarrowphase(true);
+		m_parallelNarrowphase = true;
+		m_sleepingEnabled = true;
+		m_sleepVelocity = DEFAULT_SLEEP_VELOCITY;
+		m_sleepDelay = DEFAULT_SLEEP_DELAY;
+		m_activators = new ArrayList<PhysicsObject>();
+		m_regionCandidates = new ArrayList<PhysicsObject>();
+		SetBroadphase(BroadphaseType.DynamicTree);
 	}
 	
 	/**
-	 * Performs collision checking for a particular PhysicsObject
-	 * @param obj PhysicsObject to utilize
+	 * Advances every registered PhysicsObject by one step, split into the configured number of equal substeps
+	 * Each substep moves every PhysicsObject, resolves each colliding pair exactly once, then notifies the PhysicsObjects of their collisions
+	 * PhysicsObjects registered or unregistered by listeners during the step are only added or removed once it's done
+	 * @param timeDelta Time since last step
 	 */
-	public void PerformCollisionFor(PhysicsObject obj)
+	public void Step(double timeDelta)
+	{
+		m_stepping = true;
+		try
+		{
+			UpdateActivation();
+			double substepTime = timeDelta / m_substeps;
+			for (int i = 0; i < m_substeps; i++)
+				Substep(substepTime);
+			m_time += timeDelta;
+		}
+		finally
+		{
+			m_stepping = false;
+			ApplyPendingChanges();
+		}
+	}
+	
+	private void Substep(double timeDelta)
 	{
-		int size = m_objects.size();
-		for (int j = 0; j < size; j++)
+		Integrate(timeDelta);
+		
+		//the broadphase only pairs up moving things, so each of them looks up the static world separately
+		//sleeping things can't touch anything that doesn't move, so they're skipped
+		m_pairs.Clear();
+		m_broadphase.FindPairs(m_pairs);
+		UpdateStaticIndex();
+		for (int i = 0; i < m_bodyCount; i++)
+		{
+			if (m_awake[i] && IsInBroadphase(m_bodies[i]))
+				m_staticIndex.FindPairs(m_bodies[i], m_pairs);
+		}
+		
+		//the broadphase finds pairs in an order that depends on its internal layout, so fix the order before anything depends on it
+		m_pairs.Sort();
+		int count = m_pairs.m_count;
+		if (m_pairResults.length < count)
+		{
+			m_pairResults = new byte[m_pairs.m_alphas.length];
+			m_pairSlotsA = new int[m_pairs.m_alphas.length];
+			m_pairSlotsB = new int[m_pairs.m_alphas.length];
+		}
+		m_overlapFilter.Reserve(m_pairResults.length);
+		
+		//testing pairs only reads the world, so it can be spread over every core...
+		if (m_parallelNarrowphase && count >= PARALLEL_NARROWPHASE_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(new NarrowphaseTask(this, 0, count));
+		else
+			TestPairs(0, count);
+		
+		//...but responding moves and pushes PhysicsObjects, so it's done on this thread in sorted order
+		//that way the outcome is the same no matter how many threads did the testing
+		//collisions are only reported once every pair has been resolved, so listeners see a consistent world
+		m_contacts.Clear();
+		m_solver.Clear();
+		PhysicsObject[] alphas = m_pairs.m_alphas, betas = m_pairs.m_betas;
+		long[] keys = m_pairs.m_keys;
+		byte[] results = m_pairResults;
+		for (int i = 0; i < count; i++)
 		{
-			if (obj == m_objects.get(j))
+			if (results[i] == PAIR_MISS)
 				continue;
-			Collide(obj, m_objects.get(j));
+			
+			//Collide expects the PhysicsObject that actively looks for collisions to be alpha
+			PhysicsObject alpha = alphas[i], beta = betas[i];
+			if (results[i] == PAIR_HIT_SWAPPED)
+			{
+				alpha = betas[i];
+				beta = alphas[i];
+			}
+			
+			//a sleeping PhysicsObject only ever gets here by being touched by one that's awake
+			//ghosts pass through things, so they can't disturb them
+			int b = beta.m_slot;
+			if (!m_awake[b] && alpha.m_interType != InteractionType.Ghost)
+				WakeBody(b);
+			
+			if (m_solverIterations > 0)
+			{
+				//nothing has moved since testing, so the result still holds
+				//the solver gets the pair in sorted order so its key lines up with the cached impulse
+				m_contacts.Add(alpha, beta, keys[i]);
+				if (alpha.m_interType != InteractionType.Ghost && beta.m_interType != InteractionType.Ghost)
+					m_solver.Add(alphas[i], betas[i], keys[i]);
+			}
+			//an earlier response may have already pushed the two apart, so Collide checks them again
+			else if (Collide(alpha, beta))
+				m_contacts.Add(alpha, beta, keys[i]);
+		}
+		if (m_solverIterations > 0)
+			m_solver.Solve(m_solverIterations);
+		
+		//static colliders are checked last, so nothing pushes a body back into a wall once it's been pushed out
+		if (!m_colliders.isEmpty())
+			CollideWithColliders();
+		
+		//put islands to sleep before listeners run, so a force applied by a listener wakes its PhysicsObject back up
+		if (m_sleepingEnabled)
+			UpdateSleep();
+		
+		FindContactEvents();
+		FindTriggerEvents();
+		
+		//every contact of the step is known by now, so listeners see a consistent world
+		alphas = m_events.m_alphas;
+		betas = m_events.m_betas;
+		count = m_events.m_count;
+		for (int i = 0; i < count; i++)
+		{
+			alphas[i].NotifyOfContact(betas[i], m_eventTypes[i]);
+			betas[i].NotifyOfContact(alphas[i], m_eventTypes[i]);
 		}
+		m_events.Clear();
 	}
 	
-	private boolean Collide(PhysicsObject alpha, PhysicsObject beta)
+	/**
+	 * Pushes every awake body that responds to collisions out of the static colliders, and adds the contacts to this step's
+	 */
+	private void CollideWithColliders()
 	{
-		if (alpha.m_bounds.Intersects(beta.m_bounds))
+		int added = 0, colliderCount = m_colliders.size();
+		if (m_colliderTouched.length < colliderCount)
+			m_colliderTouched = new boolean[colliderCount];
+		boolean[] touched = m_colliderTouched;
+		for (int i = 0; i < colliderCount; i++)
+			m_colliders.get(i).m_object.m_collidedLastFrame = false;
+		for (int i = 0; i < m_bodyCount; i++)
 		{
-			//if neither object is a ghost, collision response should occur
-			if (alpha.m_interType != InteractionType.Ghost && beta.m_interType != InteractionType.Ghost)
+			PhysicsObject obj = m_bodies[i];
+			if ((obj.m_interType != InteractionType.Kinetic && obj.m_interType != InteractionType.Passive) || !ChecksForCollisions(obj, i))
+				continue;
+			
+			//a body wedged between colliders can be pushed from one into another, so keep going until it stops being moved
+			for (int j = 0; j < colliderCount; j++)
+				touched[j] = false;
+			for (int pass = 0; pass < MAX_COLLIDER_PASSES; pass++)
 			{
-				boolean bothCircles = alpha.m_bounds.m_boundsType == BoundsType.Circle && beta.m_bounds.m_boundsType == BoundsType.Circle,
-						bothRectangles = alpha.m_bounds.m_boundsType == BoundsType.Rectangle && beta.m_bounds.m_boundsType == BoundsType.Rectangle,
-						notYetNudged = true;
-				boolean alphaHasResponse = alpha.m_interType == InteractionType.Kinetic || alpha.m_interType == InteractionType.Passive,
-						betaHasResponse = beta.m_interType == InteractionType.Kinetic || beta.m_interType == InteractionType.Passive;
-				
-				//use an if-else chain to first nudge the PhysicsObjects so they barely touch
-				if (alphaHasResponse)
-				{					
-					double x = alpha.m_bounds.m_boundsType == BoundsType.Circle ? alpha.m_bounds.m_circle.X : alpha.m_bounds.m_rect.m_x;
-					double y = alpha.m_bounds.m_boundsType == BoundsType.Circle ? alpha.m_bounds.m_circle.Y : alpha.m_bounds.m_rect.m_y;
-					
-					if (bothCircles)
-					{
-						alpha.m_bounds.m_circle.Nudge(beta.m_bounds.m_circle);
-
-						notYetNudged = false;
-					}
-					else if (bothRectangles)
-					{
-						alpha.m_bounds.m_rect.Nudge(beta.m_bounds.m_rect);
-						notYetNudged = false;
-					}
-					else
-					{
-						if (alpha.m_bounds.m_boundsType == BoundsType.Circle)
-							alpha.m_bounds.m_circle.Nudge(beta.m_bounds.m_rect);
-						else
-							alpha.m_bounds.m_rect.Nudge(beta.m_bounds.m_circle);
-						notYetNudged = false;
-					}
-					
-					double newX = alpha.m_bounds.m_boundsType == BoundsType.Circle ? alpha.m_bounds.m_circle.X : alpha.m_bounds.m_rect.m_x;
-					double newY = alpha.m_bounds.m_boundsType == BoundsType.Circle ? alpha.m_bounds.m_circle.Y : alpha.m_bounds.m_rect.m_y;
-					alpha.m_posX += newX - x;
-					alpha.m_posY += newY - y;
+				m_staticPushed = false;
+				for (int j = 0; j < colliderCount; j++)
+				{
+					StaticCollider collider = m_colliders.get(j);
+					if (obj.CanCollideWith(collider.m_object) && collider.Collide(this, i))
+						touched[j] = true;
 				}
-				if (betaHasResponse)
+				if (!m_staticPushed)
+					break;
+			}
+			
+			for (int j = 0; j < colliderCount; j++)
+			{
+				if (touched[j])
 				{
-					double x = beta.m_bounds.m_boundsType == BoundsType.Circle ? beta.m_bounds.m_circle.X : beta.m_bounds.m_rect.m_x;
-					double y = beta.m_bounds.m_boundsType == BoundsType.Circle ? beta.m_bounds.m_circle.Y : beta.m_bounds.m_rect.m_y;
-										
-					if (notYetNudged)
-					{	
-						if (bothCircles)
-						{
-							alpha.m_bounds.m_circle.Nudge(beta.m_bounds.m_circle);
-						}
-						else if (bothRectangles)
-						{
-							beta.m_bounds.m_rect.Nudge(alpha.m_bounds.m_rect);
-						}
-						else
-						{
-							if (beta.m_bounds.m_boundsType == BoundsType.Circle)
-								beta.m_bounds.m_circle.Nudge(alpha.m_bounds.m_rect);
-							else
-								beta.m_bounds.m_rect.Nudge(alpha.m_bounds.m_circle);
-						}
-					}
-					
-					double newX = beta.m_bounds.m_boundsType == BoundsType.Circle ? beta.m_bounds.m_circle.X : beta.m_bounds.m_rect.m_x;
-					double newY = beta.m_bounds.m_boundsType == BoundsType.Circle ? beta.m_bounds.m_circle.Y : beta.m_bounds.m_rect.m_y;
-					beta.m_posX += newX - x;
-					beta.m_posY += newY - y;
+					m_contacts.Add(obj, m_colliders.get(j).m_object);
+					added++;
 				}
-				
-				//then perform collision response
-				if (alphaHasResponse || betaHasResponse)
-					CollisionResponse(alpha, beta);
 			}
-
-			//in any case, the PhysicsObjects must be notified of the collision
-			alpha.NotifyOfCollision(beta);
-			beta.NotifyOfCollision(alpha);
-			return true;
 		}
-		return false;
+		
+		//events are merged by key, so the new contacts have to be keyed and put in order along with the rest
+		if (added > 0)
+			m_contacts.Sort();
+	}
+	
+	/**
+	 * Moves a body out of a piece of static geometry and reflects the part of its velocity heading into it
+	 * @param slot Packed index of the body
+	 * @param contact Contact from the body towards the geometry
+	 */
+	void ResolveStaticContact(int slot, Contact contact)
+	{
+		double normalX = contact.m_normalX, normalY = contact.m_normalY;
+		if (contact.m_depth > 0.0)
+		{
+			m_staticPushed |= contact.m_depth > EPSILON;
+			double dX = -normalX * contact.m_depth, dY = -normalY * contact.m_depth;
+			m_posX[slot] += dX;
+			m_posY[slot] += dY;
+			m_bodyBounds[slot].Translate(dX, dY);
+			NotifyOfMovement(m_bodies[slot]);
+		}
+		
+		double approach = m_velX[slot] * normalX + m_velY[slot] * normalY;
+		if (approach > 0.0)
+		{
+			double impulse = (1.0 + m_coefficientRestitution) * approach;
+			m_velX[slot] -= impulse * normalX;
+			m_velY[slot] -= impulse * normalY;
+		}
 	}
-	private void CollisionResponse(PhysicsObject alpha, PhysicsObject beta)
+	
+	/**
+	 * Compares this step's contacts against last step's to find which began, stayed or ended
+	 * Both lists are sorted by key, so this is a single merge
+	 */
+	private void FindContactEvents()
 	{
-		//pre-calculated booleans for readability purposes
-		boolean bothCircles = alpha.m_bounds.m_boundsType == BoundsType.Circle && beta.m_bounds.m_boundsType == BoundsType.Circle,
-				bothRectangles = alpha.m_bounds.m_boundsType == BoundsType.Rectangle && beta.m_bounds.m_boundsType == BoundsType.Rectangle;
-		boolean alphaHasResponse = alpha.m_interType == InteractionType.Kinetic || alpha.m_interType == InteractionType.Passive,
-				betaHasResponse = beta.m_interType == InteractionType.Kinetic || beta.m_interType == InteractionType.Passive;
+		PairList current = m_contacts, previous = m_previousContacts, next = m_nextContacts;
+		next.Clear();
+		m_events.Clear();
 		
-		if (bothCircles)
+		int i = 0, j = 0;
+		while (i < current.m_count || j < previous.m_count)
 		{
-			//calculate a Newtonian reaction for a pair of circles
-			double impactX = beta.m_velocityX - alpha.m_velocityX,
-					impactY = beta.m_velocityY - alpha.m_velocityY;
-			
-			//calculate the normalized impulse force
-			double impulseX = (alpha.m_bounds.m_boundsType == BoundsType.Circle ? alpha.m_bounds.m_circle.X : alpha.m_bounds.m_rect.m_x + alpha.m_bounds.m_rect.m_width / 2.0) - (beta.m_bounds.m_boundsType == BoundsType.Circle ? beta.m_bounds.m_circle.X : beta.m_bounds.m_rect.m_x + beta.m_bounds.m_rect.m_width / 2.0),
-				impulseY = (alpha.m_bounds.m_boundsType == BoundsType.Circle ? alpha.m_bounds.m_circle.Y : alpha.m_bounds.m_rect.m_y + alpha.m_bounds.m_rect.m_height / 2.0) - (beta.m_bounds.m_boundsType == BoundsType.Circle ? beta.m_bounds.m_circle.Y : beta.m_bounds.m_rect.m_y + beta.m_bounds.m_rect.m_height / 2.0);
-			double impulseMag = Math.sqrt(impulseX * impulseX + impulseY * impulseY);
-			impulseX /= impulseMag;
-			impulseY /= impulseMag;
-						
-			//scale the impulse by the total momentum in the collision response
-			double impulseMult = m_coefficientRestitution * Math.sqrt(Math.abs(impactX * impulseX + impactY * impulseY) * alpha.m_mass * beta.m_mass);
-			impulseX *= impulseMult;
-			impulseY *= impulseMult;
-			
-			//then, for both objects, apply the portion of the impulse scaled to its mass
-			if (alphaHasResponse)
+			long currentKey = i < current.m_count ? current.m_keys[i] : Long.MAX_VALUE,
+					previousKey = j < previous.m_count ? previous.m_keys[j] : Long.MAX_VALUE;
+			if (currentKey <= previousKey)
 			{
-				alpha.m_velocityX += impulseX / alpha.m_mass;
-				alpha.m_velocityY += impulseY / alpha.m_mass;
+				AddContactEvent(current.m_alphas[i], current.m_betas[i], currentKey == previousKey ? ContactEventType.Stay : ContactEventType.Begin);
+				next.Add(current.m_alphas[i], current.m_betas[i], currentKey);
+				i++;
+				if (currentKey == previousKey)
+					j++;
 			}
-			if (betaHasResponse)
+			else
 			{
-				beta.m_velocityX -= impulseX / beta.m_mass;
-				beta.m_velocityY -= impulseY / beta.m_mass;
+				//resting pairs aren't checked, so a contact between two things that haven't moved carries on as it was
+				PhysicsObject alpha = previous.m_alphas[j], beta = previous.m_betas[j];
+				if (IsResting(alpha) && IsResting(beta))
+				{
+					AddContactEvent(alpha, beta, ContactEventType.Stay);
+					next.Add(alpha, beta, previousKey);
+				}
+				else
+					AddContactEvent(alpha, beta, ContactEventType.End);
+				j++;
 			}
 		}
-		else if (bothRectangles)
+		
+		m_nextContacts = previous;
+		m_previousContacts = next;
+	}
+	
+	/**
+	 * Finds which PhysicsObjects entered, stayed in or left each Ghost
+	 * Only pairs where at least one side moved are checked, so Ghosts that nothing comes near cost next to nothing
+	 */
+	private void FindTriggerEvents()
+	{
+		//things that moved look up the Ghosts that stayed put, while Ghosts that moved look up everything, so a pair that both moved is added once
+		PairList pairs = m_triggerPairs;
+		pairs.Clear();
+		for (int i = 0; i < m_bodyCount; i++)
 		{
-			//calculate collision normal(s)
-			//since they're both rectangles, the normals will be the opposite of each other
-			double alphaNormalX = 0.0, alphaNormalY = 0.0, betaNormalX = 0.0, betaNormalY = 0.0;
-			if (Math.abs(alpha.m_bounds.m_rect.m_right - beta.m_bounds.m_rect.m_x) <= EPSILON)//A is to the left of B
+			if (!m_moved[i])
+				continue;
+			
+			PhysicsObject obj = m_bodies[i];
+			CollisionBounds bounds = obj.m_bounds;
+			double left = bounds.GetLeft(), top = bounds.GetTop(), right = bounds.GetRight(), bottom = bounds.GetBottom();
+			if (obj.m_interType == InteractionType.Ghost)
 			{
-				alphaNormalX = 1.0;
-				betaNormalX = -1.0;
+				m_broadphase.Query(left, top, right, bottom, m_candidates);
+				UpdateStaticIndex();
+				m_staticIndex.Query(left, top, right, bottom, m_candidates);
 			}
-			else if (Math.abs(beta.m_bounds.m_rect.m_right - alpha.m_bounds.m_rect.m_x) <= EPSILON)//A is to the right of B
+			else
+				m_triggers.Query(left, top, right, bottom, m_candidates);
+			
+			for (int j = 0; j < m_candidates.size(); j++)
 			{
-				alphaNormalX = -1.0;
-				betaNormalX = 1.0;
+				PhysicsObject other = m_candidates.get(j);
+				if ((obj.m_interType == InteractionType.Ghost || !m_moved[other.m_slot]) && obj.CanCollideWith(other))
+					pairs.Add(obj, other);
 			}
-			else if (Math.abs(alpha.m_bounds.m_rect.m_bottom - beta.m_bounds.m_rect.m_y) <= EPSILON)//A is above B
+			m_candidates.clear();
+		}
+		
+		//sort so the overlaps can be merged against last step's, then keep only the pairs that actually overlap
+		pairs.Sort();
+		int write = 0;
+		for (int i = 0; i < pairs.m_count; i++)
+		{
+			if (pairs.m_alphas[i].m_bounds.Intersects(pairs.m_betas[i].m_bounds))
 			{
-				alphaNormalY = 1.0;
-				betaNormalY = -1.0;
+				pairs.m_alphas[write] = pairs.m_alphas[i];
+				pairs.m_betas[write] = pairs.m_betas[i];
+				pairs.m_keys[write] = pairs.m_keys[i];
+				write++;
 			}
-			else//A is below B
+		}
+		for (int i = write; i < pairs.m_count; i++)
+			pairs.m_alphas[i] = pairs.m_betas[i] = null;
+		pairs.m_count = write;
+		
+		PairList previous = m_overlaps, next = m_nextOverlaps;
+		next.Clear();
+		int i = 0, j = 0;
+		while (i < pairs.m_count || j < previous.m_count)
+		{
+			long currentKey = i < pairs.m_count ? pairs.m_keys[i] : Long.MAX_VALUE,
+					previousKey = j < previous.m_count ? previous.m_keys[j] : Long.MAX_VALUE;
+			if (currentKey <= previousKey)
 			{
-				alphaNormalY = -1.0;
-				betaNormalY = 1.0;
+				AddContactEvent(pairs.m_alphas[i], pairs.m_betas[i], currentKey == previousKey ? ContactEventType.Stay : ContactEventType.Begin);
+				next.Add(pairs.m_alphas[i], pairs.m_betas[i], currentKey);
+				i++;
+				if (currentKey == previousKey)
+					j++;
 			}
-			
-			if (alphaHasResponse)
+			else
 			{
-				//reflects the velocity over the collision normal
-				double scale = m_coefficientRestitution * 2.0 * (alpha.m_velocityX * betaNormalX + alpha.m_velocityY * betaNormalY) / (betaNormalX * betaNormalX + betaNormalY * betaNormalY);
-				alpha.m_velocityX -= scale * betaNormalX;
-				alpha.m_velocityY -= scale * betaNormalY;
-				if (betaHasResponse)
+				//a pair that wasn't checked again, and is still registered, can only have been left alone since neither side moved
+				PhysicsObject alpha = previous.m_alphas[j], beta = previous.m_betas[j];
+				if (IsRegistered(alpha) && IsRegistered(beta) && !m_moved[alpha.m_slot] && !m_moved[beta.m_slot])
 				{
-					//Netwon's 2nd law - equal and opposite reaction
-					//the scalar reflection vector must be modified to account for the different masses of the two objects so that the two forces are still equal
-					scale = scale * alpha.m_mass / beta.m_mass;
-					
-					beta.m_velocityX += scale * betaNormalX;
-					beta.m_velocityY += scale * betaNormalY;
+					AddContactEvent(alpha, beta, ContactEventType.Stay);
+					next.Add(alpha, beta, previousKey);
 				}
+				else
+					AddContactEvent(alpha, beta, ContactEventType.End);
+				j++;
 			}
-			else if (betaHasResponse)
+		}
+		pairs.Clear();
+		
+		m_nextOverlaps = previous;
+		m_overlaps = next;
+		for (int k = 0; k < m_bodyCount; k++)
+			m_moved[k] = false;
+	}
+	
+	private void AddContactEvent(PhysicsObject alpha, PhysicsObject beta, ContactEventType type)
+	{
+		m_events.Add(alpha, beta);
+		if (m_eventTypes.length < m_events.m_alphas.length)
+			m_eventTypes = Arrays.copyOf(m_eventTypes, m_events.m_alphas.length);
+		m_eventTypes[m_events.m_count - 1] = type;
+	}
+	
+	/**
+	 * @return Whether or not a PhysicsObject is registered with this PhysicsModel
+	 */
+	private boolean IsRegistered(PhysicsObject obj)
+	{
+		return obj.m_slot >= 0 && m_bodies[obj.m_slot] == obj;
+	}
+	
+	/**
+	 * @return Whether or not a PhysicsObject is indexed by the broadphase, rather than the static index or the trigger index
+	 */
+	static boolean IsInBroadphase(PhysicsObject obj)
+	{
+		return obj.m_interType != InteractionType.Static && obj.m_interType != InteractionType.Ghost;
+	}
+	
+	/**
+	 * @return Whether or not a registered PhysicsObject is asleep, or frozen outside of every activation region
+	 */
+	static boolean IsAsleep(PhysicsObject obj)
+	{
+		return !obj.m_physicsModel.m_awake[obj.m_slot];
+	}
+	
+	/**
+	 * @return Whether or not a PhysicsObject is registered and hasn't moved, either because it's asleep or because it's Static and still
+	 */
+	private boolean IsResting(PhysicsObject obj)
+	{
+		if (obj.m_collider != null)
+			return obj.m_collider.m_physicsModel == this;
+		int slot = obj.m_slot;
+		if (slot < 0 || m_bodies[slot] != obj)
+			return false;
+		return !m_awake[slot] || (obj.m_interType == InteractionType.Static && m_velX[slot] == 0.0 && m_velY[slot] == 0.0);
+	}
+	
+	/**
+	 * Tests a range of candidate pairs for intersection and records the result of each in m_pairResults
+	 * Only reads the world, so disjoint ranges may be tested on different threads at the same time
+	 * @param start Index of the first pair to test
+	 * @param end Index one past the last pair to test
+	 */
+	void TestPairs(int start, int end)
+	{
+		PhysicsObject[] alphas = m_pairs.m_alphas, betas = m_pairs.m_betas;
+		byte[] results = m_pairResults;
+		int[] slotsA = m_pairSlotsA, slotsB = m_pairSlotsB;
+		for (int i = start; i < end; i++)
+		{
+			results[i] = PAIR_MISS;
+			
+			//a pair only needs checking if their layers allow it and at least one of the two actively looks for collisions
+			PhysicsObject alpha = alphas[i], beta = betas[i];
+			int a = alpha.m_slot, b = beta.m_slot;
+			slotsA[i] = a;
+			slotsB[i] = b;
+			if (!alpha.CanCollideWith(beta))
+				continue;
+			byte hit = PAIR_HIT;
+			if (!ChecksForCollisions(alpha, a))
 			{
-				//Netwon's 2nd law - equal and opposite reaction
-				//the scalar reflection vector must be modified to account for the different masses of the two objects so that the two forces are still equal
-				double scale = m_coefficientRestitution * 2.0 * (beta.m_velocityX * alphaNormalX + beta.m_velocityY * alphaNormalY) / (alphaNormalX * alphaNormalX + alphaNormalY * alphaNormalY);
-				beta.m_velocityX -= scale * alphaNormalX;
-				beta.m_velocityY -= scale * alphaNormalY;
-				//don't need to affect alpha - if the code is executing this branch, alpha must not have a collision response
+				if (!ChecksForCollisions(beta, b))
+					continue;
+				hit = PAIR_HIT_SWAPPED;
 			}
+			results[i] = hit;
 		}
-		//one is a rectangle and the other is a circle
-		else if (alpha.m_bounds.m_boundsType == BoundsType.Rectangle)//alpha is the rectangle
+		
+		//reject pairs that are apart using the packed body state, before touching the shapes themselves
+		m_overlapFilter.Filter(this, slotsA, slotsB, results, start, end);
+		
+		for (int i = start; i < end; i++)
 		{
-			if (alphaHasResponse)
+			if (results[i] != PAIR_MISS && !ContactKernel.Get(m_shape[slotsA[i]], m_shape[slotsB[i]]).Intersects(alphas[i].m_bounds, betas[i].m_bounds))
+				results[i] = PAIR_MISS;
+		}
+	}
+	
+	private void Integrate(double timeDelta)
+	{
+		//every body shares the same time step, so friction only needs to be calculated once - and with a fixed time step, only once ever
+		if (timeDelta != m_frictionTimeDelta)
+		{
+			m_frictionFactor = Math.pow(m_friction, timeDelta);
+			m_frictionTimeDelta = timeDelta;
+		}
+		int count = m_bodyCount;
+		
+		//first advance the packed state in one linear pass; sleeping bodies have no velocity or acceleration, so they stay put...
+		m_integrator.Integrate(this, timeDelta, m_frictionFactor);
+		
+		double sleepVelocitySquared = m_sleepVelocity * m_sleepVelocity;
+		for (int i = 0; i < count; i++)
+		{
+			//...and keep reporting whatever they were touching when they fell asleep
+			if (!m_awake[i])
+				continue;
+			
+			if (m_accX[i] == 0.0 && m_accY[i] == 0.0 && m_velX[i] * m_velX[i] + m_velY[i] * m_velY[i] <= sleepVelocitySquared)
+				m_sleepTime[i] += timeDelta;
+			else
+				m_sleepTime[i] = 0.0;
+			
+			m_accX[i] = 0.0;
+			m_accY[i] = 0.0;
+			m_collided[i] = false;
+		}
+		
+		//...then move the shapes of the bodies that actually moved
+		for (int i = 0; i < count; i++)
+		{
+			if (m_dispX[i] != 0.0 || m_dispY[i] != 0.0)
 			{
-				//since alpha is a circle, the collision normal is the same as the line between the center of the circle and the center of the rectangle
-				double dX = beta.m_bounds.m_circle.X - alpha.m_bounds.m_rect.m_x - alpha.m_bounds.m_rect.m_width / 2.0,
-						dY = beta.m_bounds.m_circle.Y - alpha.m_bounds.m_rect.m_y - alpha.m_bounds.m_rect.m_height / 2.0;
-				
-				//normalize the collision normal
-				double mag = Math.sqrt(dX * dX + dY * dY);
-				dX /= mag;
-				dY /= mag;
-
-				//reflects the velocity over the collision normal
-				double scale = m_coefficientRestitution * 2.0 * (alpha.m_velocityX * dX + alpha.m_velocityY * dY) / (dX * dX + dY * dY);
-				alpha.m_velocityX -= scale * dX;
-				alpha.m_velocityY -= scale * dY;
-				if (betaHasResponse)
-				{
-					//Netwon's 2nd law - equal and opposite reaction
-					//the scalar reflection vector must be modified to account for the different masses of the two objects so that the two forces are still equal
-					scale = scale * alpha.m_mass / beta.m_mass;
-					beta.m_velocityX += scale * dX;
-					beta.m_velocityY += scale * dY;
-				}
+				m_bodyBounds[i].Translate(m_dispX[i], m_dispY[i]);
+				NotifyOfMovement(m_bodies[i]);
 			}
-			else if (betaHasResponse)
+		}
+		
+		//a body that moved less than its own size overlaps anything it passed, so only bodies that moved further need sweeping
+		for (int i = 0; i < count; i++)
+		{
+			double dX = m_dispX[i] < 0.0 ? -m_dispX[i] : m_dispX[i], dY = m_dispY[i] < 0.0 ? -m_dispY[i] : m_dispY[i];
+			if ((dX > m_extentX[i] || dY > m_extentY[i]) && m_bodies[i].m_continuous)
+				Sweep(i);
+		}
+	}
+	
+	/**
+	 * Pulls a body that moved during this step back to where it first touched something along the way
+	 * Everything else is treated as having been at its final position for the whole step
+	 * @param slot Packed index of the body to sweep
+	 */
+	private void Sweep(int slot)
+	{
+		PhysicsObject obj = m_bodies[slot];
+		if (obj.m_interType != InteractionType.Kinetic && obj.m_interType != InteractionType.Passive)
+			return;
+		
+		//go back to where the body started, and find everything in the area it swept through
+		CollisionBounds bounds = m_bodyBounds[slot];
+		double dX = m_dispX[slot], dY = m_dispY[slot];
+		bounds.Translate(-dX, -dY);
+		m_candidates.clear();
+		double left = bounds.GetLeft() + (dX < 0.0 ? dX : 0.0), top = bounds.GetTop() + (dY < 0.0 ? dY : 0.0),
+				right = bounds.GetRight() + (dX > 0.0 ? dX : 0.0), bottom = bounds.GetBottom() + (dY > 0.0 ? dY : 0.0);
+		m_broadphase.Query(left, top, right, bottom, m_candidates);
+		UpdateStaticIndex();
+		m_staticIndex.Query(left, top, right, bottom, m_candidates);
+		
+		//things it already touched at the start are left to the regular collision check
+		double first = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < m_candidates.size(); i++)
+		{
+			PhysicsObject other = m_candidates.get(i);
+			if (other == obj || other.m_interType == InteractionType.Ghost || !obj.CanCollideWith(other))
+				continue;
+			double time = bounds.TimeOfImpact(dX, dY, other.m_bounds);
+			if (time > 0.0 && time < first)
+				first = time;
+		}
+		m_candidates.clear();
+		for (int i = 0; i < m_colliders.size(); i++)
+		{
+			StaticCollider collider = m_colliders.get(i);
+			if (!obj.CanCollideWith(collider.m_object))
+				continue;
+			double time = collider.TimeOfImpact(bounds, dX, dY);
+			if (time > 0.0 && time < first)
+				first = time;
+		}
+		
+		if (first < 1.0)
+		{
+			//stop just past the point of impact, so the collision check sees the contact and responds to it
+			double travel = first + EPSILON / Math.sqrt(dX * dX + dY * dY);
+			travel = travel < 1.0 ? travel : 1.0;
+			m_posX[slot] += dX * travel - dX;
+			m_posY[slot] += dY * travel - dY;
+			dX *= travel;
+			dY *= travel;
+			m_dispX[slot] = dX;
+			m_dispY[slot] = dY;
+			bounds.Translate(dX, dY);
+			NotifyOfMovement(obj);
+		}
+		else
+			bounds.Translate(dX, dY);
+	}
+	
+	/**
+	 * Puts every island of touching PhysicsObjects to sleep once all of its members have been resting for long enough
+	 * Islands are rebuilt each step from the contacts found, using a union-find forest over the packed bodies
+	 */
+	private void UpdateSleep()
+	{
+		int count = m_bodyCount;
+		int[] parent = m_islandParent;
+		for (int i = 0; i < count; i++)
+		{
+			parent[i] = i;
+			m_islandSleepTime[i] = Double.POSITIVE_INFINITY;
+		}
+		
+		//static bodies never sleep, and don't join islands - otherwise the whole arena would be one island through its walls
+		PhysicsObject[] alphas = m_contacts.m_alphas, betas = m_contacts.m_betas;
+		for (int i = 0; i < m_contacts.m_count; i++)
+		{
+			int a = alphas[i].m_slot, b = betas[i].m_slot;
+			if (a < 0 || b < 0)
+				continue;//static colliders aren't packed bodies
+			if (!CanSleep(alphas[i], a) || !CanSleep(betas[i], b))
+				continue;
+			a = FindIsland(a);
+			b = FindIsland(b);
+			if (a != b)
+				parent[a < b ? b : a] = a < b ? a : b;//keep the lower slot as the root so the result doesn't depend on contact order
+		}
+		
+		//an island can only sleep as soon as its most restless member can
+		for (int i = 0; i < count; i++)
+		{
+			if (CanSleep(m_bodies[i], i))
 			{
-				double alphaNormalX = 0.0, alphaNormalY = 0.0;
-				if (Math.abs(beta.m_bounds.m_circle.X - alpha.m_bounds.m_rect.m_x) - beta.m_bounds.m_circle.Radius <= EPSILON)//A is to the left of B
-					alphaNormalX = 1.0;
-				else if (Math.abs(alpha.m_bounds.m_rect.m_right - beta.m_bounds.m_circle.X) - beta.m_bounds.m_circle.Radius <= EPSILON)//A is to the right of B
-					alphaNormalX = -1.0;
-				if (Math.abs(beta.m_bounds.m_circle.Y - alpha.m_bounds.m_rect.m_y) - beta.m_bounds.m_circle.Radius <= EPSILON)//A is above B
-					alphaNormalY = 1.0;
-				else if (Math.abs(alpha.m_bounds.m_rect.m_bottom - beta.m_bounds.m_circle.Y) - beta.m_bounds.m_circle.Radius <= EPSILON)//A is below B
-					alphaNormalY = -1.0;
-				
-				if (alphaNormalX != 0.0 && alphaNormalY != 0.0)//normalize
-				{
-					//little optimization trick - if both of the normals are non-zero, then they must each be -1 or 1
-					//so the magnitude of the vector is 2
-					//saves an expensive Math.sqrt calculation
-					alphaNormalX *= ONE_OVER_SQRT_TWO;
-					alphaNormalY *= ONE_OVER_SQRT_TWO;
-				}
-				//reflects the velocity over the collision normal
-				double scale = m_coefficientRestitution * 2.0 * (beta.m_velocityX * alphaNormalX + beta.m_velocityY * alphaNormalY) / (alphaNormalX * alphaNormalX + alphaNormalY * alphaNormalY);
-				beta.m_velocityX -= scale * alphaNormalX;
-				beta.m_velocityY -= scale * alphaNormalY;
-				//don't need to affect alpha - if the code is executing this branch, alpha must not have a collision response
+				int root = FindIsland(i);
+				if (m_sleepTime[i] < m_islandSleepTime[root])
+					m_islandSleepTime[root] = m_sleepTime[i];
 			}
 		}
-		else//beta is the rectangle
+		
+		for (int i = 0; i < count; i++)
 		{
-			if (alphaHasResponse)
+			if (!CanSleep(m_bodies[i], i))
+				continue;
+			int root = FindIsland(i);
+			if (m_islandSleepTime[root] < m_sleepDelay)
+				continue;
+			
+			m_awake[i] = false;
+			m_velX[i] = 0.0;
+			m_velY[i] = 0.0;
+			
+			//thread the island's members into a ring after its root, so waking any one of them wakes the rest
+			if (i != root)
 			{
-				double betaNormalX = 0.0, betaNormalY = 0.0;
-				if (Math.abs(alpha.m_bounds.m_circle.X - beta.m_bounds.m_rect.m_x) - alpha.m_bounds.m_circle.Radius <= EPSILON)//B is to the left of S
-					betaNormalX = 1.0;
-				else if (Math.abs(beta.m_bounds.m_rect.m_right - alpha.m_bounds.m_circle.X) - alpha.m_bounds.m_circle.Radius <= EPSILON)//B is to the right of A
-					betaNormalX = -1.0;
-				if (Math.abs(alpha.m_bounds.m_circle.Y - beta.m_bounds.m_rect.m_y) - alpha.m_bounds.m_circle.Radius <= EPSILON)//B is above A
-					betaNormalY = 1.0;
-				else if (Math.abs(beta.m_bounds.m_rect.m_bottom - alpha.m_bounds.m_circle.Y) - alpha.m_bounds.m_circle.Radius <= EPSILON)//B is below A
-					betaNormalY = -1.0;
-				
-				if (betaNormalX != 0.0 && betaNormalY != 0.0)//normalize
-				{
-					//little optimization trick - if both of the normals are non-zero, then they must each be -1 or 1
-					//so the magnitude of the vector is 2
-					//saves an expensive Math.sqrt calculation
-					betaNormalX *= ONE_OVER_SQRT_TWO;
-					betaNormalY *= ONE_OVER_SQRT_TWO;
-				}
-
-				//reflects the velocity over the collision normal
-				double scale = m_coefficientRestitution * 2.0 * (alpha.m_velocityX * betaNormalX + alpha.m_velocityY * betaNormalY) / (betaNormalX * betaNormalX + betaNormalY * betaNormalY);
-				alpha.m_velocityX -= scale * betaNormalX;
-				alpha.m_velocityY -= scale * betaNormalY;
+				m_islandNext[i] = m_islandNext[root];
+				m_islandNext[root] = i;
 			}
-			else if (betaHasResponse)
+		}
+	}
+	
+	private int FindIsland(int slot)
+	{
+		int[] parent = m_islandParent;
+		while (parent[slot] != slot)
+		{
+			parent[slot] = parent[parent[slot]];//path halving keeps the trees shallow
+			slot = parent[slot];
+		}
+		return slot;
+	}
+	
+	/**
+	 * @return Whether or not a registered PhysicsObject is awake and allowed to fall asleep
+	 */
+	private boolean CanSleep(PhysicsObject obj, int slot)
+	{
+		return m_awake[slot] && (obj.m_interType == InteractionType.Kinetic || obj.m_interType == InteractionType.Passive);
+	}
+	
+	/**
+	 * Wakes a sleeping body along with the rest of the island it fell asleep with
+	 * @param slot Packed index of the body to wake
+	 */
+	void WakeBody(int slot)
+	{
+		if (m_awake[slot])
+			return;
+		
+		int current = slot;
+		do
+		{
+			int next = m_islandNext[current];
+			if (m_dormant[current])
+				Unfreeze(current);
+			m_awake[current] = true;
+			m_sleepTime[current] = 0.0;
+			m_islandNext[current] = current;
+			current = next;
+		} while (current != slot);
+	}
+	
+	/**
+	 * Thaws frozen bodies that an activation region has reached, and freezes moving ones that are outside of every region
+	 * Frozen bodies are asleep with their velocity put aside, so they cost no more than sleeping ones until they're thawed
+	 */
+	private void UpdateActivation()
+	{
+		if (m_activators.isEmpty() && m_dormantCount == 0)
+			return;
+		m_activationStep++;
+		
+		//only the area around each activator is searched for frozen bodies, however large the world is
+		for (int i = 0; i < m_activators.size(); i++)
+		{
+			PhysicsObject activator = m_activators.get(i);
+			int slot = activator.m_slot;
+			double x = m_posX[slot] + m_offsetX[slot], y = m_posY[slot] + m_offsetY[slot], radius = activator.m_activationRadius;
+			m_regionCandidates.clear();
+			m_broadphase.Query(x - radius, y - radius, x + radius, y + radius, m_regionCandidates);
+			for (int j = 0; j < m_regionCandidates.size(); j++)
 			{
-				//since alpha is a circle, the collision normal is the same as the line between the center of the circle and the center of the rectangle
-				double dX = alpha.m_bounds.m_circle.X - beta.m_bounds.m_rect.m_x - beta.m_bounds.m_rect.m_width / 2.0,
-				dY = alpha.m_bounds.m_circle.Y - beta.m_bounds.m_rect.m_y - beta.m_bounds.m_rect.m_height / 2.0;
-		
-				//normalize the collision normal
-				double mag = Math.sqrt(dX * dX + dY * dY);
-				dX /= mag;
-				dY /= mag;
-
-				//reflects the velocity over the collision normal
-				double scale = m_coefficientRestitution * 2.0 * (beta.m_velocityX * dX + beta.m_velocityY * dY) / (dX * dX + dY * dY);
-				beta.m_velocityX -= scale * dX;
-				beta.m_velocityY -= scale * dY;
-				//don't need to affect alpha - if the code is executing this branch, alpha must not have a collision response
+				int other = m_regionCandidates.get(j).m_slot;
+				if (m_dormant[other] && IsInRegion(other, x, y, radius))
+					Thaw(other);
 			}
 		}
-	}
+		m_regionCandidates.clear();
 		
+		for (int i = 0; i < m_bodyCount; i++)
+		{
+			if (m_dormant[i])
+			{
+				//frozen bodies take turns at a coarse update, which leaves them awake for a step to collide with whatever they've caught up to
+				if (m_activators.isEmpty() || (m_dormantInterval > 0 && (m_bodies[i].m_id + m_activationStep) % m_dormantInterval == 0))
+					Thaw(i);
+				continue;
+			}
+			if (!m_activators.isEmpty() && CanFreeze(m_bodies[i], i) && !IsInAnyRegion(i))
+				Freeze(i);
+		}
+	}
+	
 	/**
-	 * Renders all registered PhysicsObjects' CollisionBounds
+	 * @return Whether or not a registered PhysicsObject is awake, moves on its own, and is left alone by no forces this step
 	 */
-	@Override
-	public void Render(Graphics2D g, ImageObserver renderer)
+	private boolean CanFreeze(PhysicsObject obj, int slot)
 	{
-		for (PhysicsObject obj : m_objects)
-			obj.Render(g, renderer);
+		return m_awake[slot] && !obj.m_activator && (obj.m_interType == InteractionType.Kinetic || obj.m_interType == InteractionType.Passive)
+				&& m_accX[slot] == 0.0 && m_accY[slot] == 0.0;
 	}
 	
 	/**
-	 * Renders all registered PhysicsObjects' CollisionBounds
-	 * @param g Graphics2D used to draw the resource
-	 * @param renderer ImageObserver used to optimize drawing by not drawing off-screen
-	 * @param renderWireframe Whether or not the wireframes of the registered PhysicsObjects should be drawn
+	 * @return Whether or not the box around a body touches any activation region
 	 */
-	public void Render(Graphics2D g, ImageObserver renderer, boolean renderWireframe)
+	private boolean IsInAnyRegion(int slot)
 	{
-		for (PhysicsObject obj : m_objects)
-			obj.Render(g, renderer);
-
-		if (renderWireframe)
+		for (int i = 0; i < m_activators.size(); i++)
 		{
-			for (PhysicsObject obj : m_objects)
-				obj.RenderWireframe(g, renderer);
+			PhysicsObject activator = m_activators.get(i);
+			int other = activator.m_slot;
+			if (IsInRegion(slot, m_posX[other] + m_offsetX[other], m_posY[other] + m_offsetY[other], activator.m_activationRadius))
+				return true;
 		}
+		return false;
 	}
 	
 	/**
-	 * Registers a PhysicsObject to be updated
-	 * @param obj PhysicsObject to register
+	 * @return Whether or not the box around a body touches a circle
 	 */
-	public void RegisterObject(PhysicsObject obj)
+	private boolean IsInRegion(int slot, double x, double y, double radius)
 	{
-		m_objects.add(obj);
+		double dX = Math.abs(x - m_posX[slot] - m_offsetX[slot]) - m_extentX[slot], dY = Math.abs(y - m_posY[slot] - m_offsetY[slot]) - m_extentY[slot];
+		dX = dX > 0.0 ? dX : 0.0;
+		dY = dY > 0.0 ? dY : 0.0;
+		return dX * dX + dY * dY <= radius * radius;
 	}
 	
 	/**
-	 * Unregisters a PhysicsObject from being updated
-	 * @param obj PhysicsObject to register
+	 * Puts a body to sleep where it is, setting its velocity aside until it's thawed
+	 * @param slot Packed index of the body to freeze
 	 */
-	public void UnregisterObject(PhysicsObject obj)
+	private void Freeze(int slot)
 	{
-		m_objects.remove(obj);
+		m_frozenVelX[slot] = m_velX[slot];
+		m_frozenVelY[slot] = m_velY[slot];
+		m_frozenTime[slot] = m_time;
+		m_velX[slot] = 0.0;
+		m_velY[slot] = 0.0;
+		m_awake[slot] = false;
+		m_dormant[slot] = true;
+		m_dormantCount++;
 	}
-
+	
 	/**
-	 * Sets the coefficient of friction, which is the energy lost as a GameObject moves as a percentage
-	 * @param friction Coefficient, as a value between 0.0 and 1.0, inclusive
+	 * Gives a frozen body back its velocity, slowed by the friction it would have felt while it was frozen, but leaves it where it is
+	 * Used when something disturbs the body, since whatever disturbed it did so where it is now
+	 * @param slot Packed index of the frozen body
 	 */
-	public void SetFriction(double friction)
+	private void Unfreeze(int slot)
 	{
-		//The internal m_friction is calculated so that it represents energy conserved each millisecond rather than energy lost every millisecond
-		//makes the friction-applying code simpler and easier
-		m_friction = 1.0 - (friction < 0.0 ? 0.0 : friction > 1.0 ? 1.0 : friction);
+		double decay = FrozenDecay(slot);
+		m_velX[slot] = m_frozenVelX[slot] * decay;
+		m_velY[slot] = m_frozenVelY[slot] * decay;
+		m_dormant[slot] = false;
+		m_dormantCount--;
 	}
-
+	
 	/**
-	 * Sets the coefficient of restitution, which is the energy lost in collisions as a percentage
-	 * @param coefficient Coefficient, as a value between 0.0 and 1.0, inclusive
+	 * @return Fraction of a frozen body's velocity that friction would have left it with by now
 	 */
-	public void SetCoefficientOfRestitution(double coefficient)
+	double FrozenDecay(int slot)
 	{
-		m_coefficientRestitution = coefficient < 0.0 ? 0.0 : coefficient > 1.0 ? 1.0 : coefficient;
+		return Math.pow(m_friction, m_time - m_frozenTime[slot]);
 	}
 	
 	/**
-	 * @return The energy retained as a PhysicsObject moves as a percentage between 0.0 and 1.0, inclusive
+	 * Wakes a frozen body after moving it as far as it would have coasted while it was frozen, in a single catch-up step
+	 * The move can cover many steps' worth of distance at once, so it's always swept, even for bodies that aren't continuous
+	 * @param slot Packed index of the frozen body
 	 */
-	public double GetFriction() { return m_friction; }
+	private void Thaw(int slot)
+	{
+		//with friction, speed falls off exponentially, so the distance covered is the integral of that rather than the time passed
+		double elapsed = m_time - m_frozenTime[slot];
+		double travel = m_friction >= 1.0 ? elapsed : (1.0 - Math.pow(m_friction, elapsed)) / -Math.log(m_friction);
+		double dX = m_frozenVelX[slot] * travel, dY = m_frozenVelY[slot] * travel;
+		WakeBody(slot);
+		if (dX == 0.0 && dY == 0.0)
+			return;
+		
+		m_posX[slot] += dX;
+		m_posY[slot] += dY;
+		m_dispX[slot] = dX;
+		m_dispY[slot] = dY;
+		m_bodyBounds[slot].Translate(dX, dY);
+		NotifyOfMovement(m_bodies[slot]);
+		Sweep(slot);
+	}
 	
 	/**
-	 * @return The energy lost in collisions as a percentage between 0.0 and 1.0, inclusive
+	 * @return Whether or not a registered PhysicsObject actively looks for collisions, rather than only being collided against
 	 */
-	public double GetCoefficientOfRestitution() { return m_coefficientRestitution; }
+	private boolean ChecksForCollisions(PhysicsObject obj, int slot)
+	{
+		if (!m_awake[slot])
+			return false;
+		return obj.m_interType == InteractionType.Kinetic || obj.m_interType == InteractionType.Ghost || m_velX[slot] != 0.0 || m_velY[slot] != 0.0;
+	}
+	
+	/**
+	 * Finds every registered PhysicsObject whose CollisionBounds intersect an area
+	 * @param area Area to search
+	 * @param results List the PhysicsObjects found are appended to
+	 */
+	public void FindObjectsIn(Rectangle area, List<PhysicsObject> results)
+	{
+		//the broadphase only narrows things down to bounding boxes, so weed out the near misses afterwards
+		int start = results.size();
+		m_broadphase.Query(area.m_x, area.m_y, area.m_right, area.m_bottom, results);
+		UpdateStaticIndex();
+		m_staticIndex.Query(area.m_x, area.m_y, area.m_right, area.m_bottom, results);
+		m_triggers.Query(area.m_x, area.m_y, area.m_right, area.m_bottom, results);
+		
+		int write = start;
+		for (int read = start; read < results.size(); read++)
+		{
+			PhysicsObject obj = results.get(read);
+			if (obj.m_bounds.Intersects(area))
+				results.set(write++, obj);
+		}
+		results.subList(write, results.size()).clear();
+	}
+	
+	/**
+	 * Finds the nearest registered PhysicsObject along a ray, without allocating anything
+	 * @param ray Ray to cast
+	 * @param filter Decides which PhysicsObjects the ray can hit; null lets it hit anything
+	 * @param hit Filled in with the nearest PhysicsObject hit, or cleared if there isn't one
+	 * @return Whether or not the ray hit anything
+	 */
+	public boolean CastRay(Ray ray, RayFilter filter, RayHit hit)
+	{
+		hit.Clear();
+		double nearest = Double.MAX_VALUE;
+		for (int i = 0; i < m_bodyCount; i++)
+		{
+			PhysicsObject obj = m_bodies[i];
+			if (filter != null && !filter.Accepts(obj))
+				continue;
+			double distance = ray.DistanceTo(m_bodyBounds[i]);
+			if (distance < nearest && distance >= 0.0)
+			{
+				nearest = distance;
+				hit.Set(ray, obj, distance);
+			}
+		}
+		for (int i = 0; i < m_colliders.size(); i++)
+		{
+			PhysicsObject obj = m_colliders.get(i).m_object;
+			if (filter != null && !filter.Accepts(obj))
+				continue;
+			double distance = m_colliders.get(i).CastRay(ray, nearest);
+			if (distance < nearest)
+			{
+				nearest = distance;
+				hit.Set(ray, obj, distance);
+			}
+		}
+		return hit.IsHit();
+	}
+	
+	/**
+	 * Keeps the broadphase up to date after a PhysicsObject's CollisionBounds move
+	 * @param obj PhysicsObject that moved
+	 */
+	void NotifyOfMovement(PhysicsObject obj)
+	{
+		m_moved[obj.m_slot] = true;
+		if (obj.m_interType == InteractionType.Static)
+			m_staticIndexDirty = true;
+		else if (obj.m_interType == InteractionType.Ghost)
+			m_triggers.Update(obj);
+		else
+			m_broadphase.Update(obj);
+	}
+	
+	/**
+	 * Rebuilds the index of Static PhysicsObjects if any have come, gone or moved since it was last built
+	 */
+	private void UpdateStaticIndex()
+	{
+		if (!m_staticIndexDirty)
+			return;
+		
+		m_staticIndex.Clear();
+		for (int i = 0; i < m_bodyCount; i++)
+		{
+			if (m_bodies[i].m_interType == InteractionType.Static)
+				m_staticIndex.Add(m_bodies[i]);
+		}
+		m_staticIndex.Build();
+		m_staticIndexDirty = false;
+	}
+	
+	private boolean Collide(PhysicsObject alpha, PhysicsObject beta)
+	{
+		int a = alpha.m_slot, b = beta.m_slot;
+		ContactKernel kernel = ContactKernel.Get(m_shape[a], m_shape[b]);
+		if (!kernel.Intersects(alpha.m_bounds, beta.m_bounds))
+			return false;
+		
+		//if neither object is a ghost, collision response should occur
+		if (alpha.m_interType != InteractionType.Ghost && beta.m_interType != InteractionType.Ghost)
+		{
+			boolean alphaHasResponse = alpha.m_interType == InteractionType.Kinetic || alpha.m_interType == InteractionType.Passive,
+					betaHasResponse = beta.m_interType == InteractionType.Kinetic || beta.m_interType == InteractionType.Passive;
+			
+			//first nudge the PhysicsObjects so they barely touch, which only takes moving one of them
+			if (alphaHasResponse)
+			{
+				kernel.Nudge(this, a, b);
+				NotifyOfMovement(alpha);
+			}
+			else if (betaHasResponse)
+			{
+				ContactKernel.Get(m_shape[b], m_shape[a]).Nudge(this, b, a);
+				NotifyOfMovement(beta);
+			}
+			
+			//then perform collision response
+			if (alphaHasResponse || betaHasResponse)
+				kernel.Respond(this, a, b, alphaHasResponse, betaHasResponse);
+		}
+		
+		//in any case, the caller must notify the PhysicsObjects of the collision
+		return true;
+	}
+		
+	/**
+	 * Renders all registered PhysicsObjects' CollisionBounds
+	 */
+	@Override
+	public void Render(Graphics2D g, ImageObserver renderer)
+	{
+		for (int i = 0; i < m_bodyCount; i++)
+			m_bodies[i].Render(g, renderer);
+	}
+	
+	/**
+	 * Renders all registered PhysicsObjects' CollisionBounds
+	 * @param g Graphics2D used to draw the resource
+	 * @param renderer ImageObserver used to optimize drawing by not drawing off-screen
+	 * @param renderWireframe Whether or not the wireframes of the registered PhysicsObjects should be drawn
+	 */
+	public void Render(Graphics2D g, ImageObserver renderer, boolean renderWireframe)
+	{
+		for (int i = 0; i < m_bodyCount; i++)
+			m_bodies[i].Render(g, renderer);
+
+		if (renderWireframe)
+		{
+			for (int i = 0; i < m_bodyCount; i++)
+				m_bodies[i].RenderWireframe(g, renderer);
+			for (int i = 0; i < m_colliders.size(); i++)
+				m_colliders.get(i).RenderWireframe(g);
+		}
+	}
+	
+	/**
+	 * Adds static geometry that every PhysicsObject which responds to collisions is kept out of
+	 * @param collider StaticCollider to add
+	 */
+	public void AddCollider(StaticCollider collider)
+	{
+		if (collider.m_physicsModel == this)
+			return;
+		collider.m_object.m_id = m_nextID++;
+		collider.m_physicsModel = this;
+		m_colliders.add(collider);
+	}
+	
+	/**
+	 * Removes static geometry added with AddCollider
+	 * @param collider StaticCollider to remove
+	 */
+	public void RemoveCollider(StaticCollider collider)
+	{
+		if (m_colliders.remove(collider))
+			collider.m_physicsModel = null;
+	}
+	
+	/**
+	 * Puts an activation region around a PhysicsObject, typically a Robot, so the world only has to be simulated in full near it
+	 * Once there's any activation region, Kinetic and Passive PhysicsObjects outside of every one are frozen, costing no more than sleeping ones
+	 * A frozen PhysicsObject catches up on the time it missed in one swept move once a region reaches it, or once it's due a coarse update
+	 * Pushing a frozen PhysicsObject or running into it thaws it where it is
+	 * Calling this again for the same PhysicsObject changes the radius of its region
+	 * The region only exists while the PhysicsObject is registered, and comes back with it if it's registered again
+	 * @param obj PhysicsObject at the middle of the region, which is never frozen itself
+	 * @param radius Distance from the middle of the PhysicsObject's shape that the region reaches; negative values are treated as 0
+	 */
+	public void AddActivator(PhysicsObject obj, double radius)
+	{
+		obj.m_activationRadius = radius < 0.0 ? 0.0 : radius;
+		if (obj.m_activator)
+			return;
+		obj.m_activator = true;
+		if (obj.m_slot >= 0)
+			m_activators.add(obj);
+	}
+	
+	/**
+	 * Removes a PhysicsObject's activation region; once none are left, every frozen PhysicsObject catches up on the next step
+	 * @param obj PhysicsObject passed to AddActivator
+	 */
+	public void RemoveActivator(PhysicsObject obj)
+	{
+		if (!obj.m_activator)
+			return;
+		obj.m_activator = false;
+		m_activators.remove(obj);
+	}
+	
+	/**
+	 * Merges registered Static rectangles that line up edge to edge into as few larger rectangles as possible
+	 * Meant to be called once after loading a level built from many small blocks, so there are fewer bodies to search and no seams to snag on
+	 * The PhysicsObjects merged away are unregistered, and the ones kept grow to cover them
+	 * Only still PhysicsObjects without listeners, which share a collision filter, color and rendering, are merged together
+	 * Does nothing during a step
+	 * @return Number of Static rectangles before merging divided by the number after, so 1 means nothing was merged
+	 */
+	public double MergeStaticRectangles()
+	{
+		if (m_stepping)
+			return 1.0;
+		
+		int before = 0;
+		List<PhysicsObject> candidates = new ArrayList<PhysicsObject>();
+		for (int i = 0; i < m_bodyCount; i++)
+		{
+			PhysicsObject obj = m_bodies[i];
+			if (obj.m_interType != InteractionType.Static || obj.m_bounds.m_boundsType != BoundsType.Rectangle)
+				continue;
+			before++;
+			
+			//merging one that moves or reports contacts would change what it does
+			if (m_velX[i] == 0.0 && m_velY[i] == 0.0 && obj.m_listeners.isEmpty() && obj.m_beginListeners.isEmpty()
+					&& obj.m_stayListeners.isEmpty() && obj.m_endListeners.isEmpty())
+				candidates.add(obj);
+		}
+		if (before == 0)
+			return 1.0;
+		
+		List<PhysicsObject> merged = new ArrayList<PhysicsObject>();
+		RectangleMerger.Merge(candidates, merged);
+		UnregisterObjects(merged);
+		for (int i = 0; i < candidates.size(); i++)
+		{
+			PhysicsObject obj = candidates.get(i);
+			CacheShape(obj.m_slot);
+			NotifyOfMovement(obj);
+		}
+		return (double)before / (before - merged.size());
+	}
+	
+	/**
+	 * Registers a PhysicsObject to be updated
+	 * If called during a step, the PhysicsObject is only added once the step is done
+	 * @param obj PhysicsObject to register
+	 * @return Handle that identifies the PhysicsObject until it's unregistered
+	 */
+	public int RegisterObject(PhysicsObject obj)
+	{
+		int handle = AcquireHandle(obj);
+		if (m_stepping)
+			QueueChange(obj, true);
+		else
+			AddBody(obj);
+		return handle;
+	}
+	
+	/**
+	 * Registers many PhysicsObjects at once, making room for all of them up front
+	 * @param objs PhysicsObjects to register
+	 */
+	public void RegisterObjects(Collection<? extends PhysicsObject> objs)
+	{
+		if (!m_stepping && m_bodyCount + objs.size() > m_bodies.length)
+		{
+			int capacity = m_bodies.length;
+			while (capacity < m_bodyCount + objs.size())
+				capacity *= 2;
+			AllocateBodies(capacity);
+		}
+		for (PhysicsObject obj : objs)
+			RegisterObject(obj);
+	}
+	
+	/**
+	 * Unregisters a PhysicsObject from being updated
+	 * If called during a step, the PhysicsObject is only removed once the step is done
+	 * @param obj PhysicsObject to unregister
+	 */
+	public void UnregisterObject(PhysicsObject obj)
+	{
+		if (m_stepping)
+			QueueChange(obj, false);
+		else
+		{
+			RemoveBody(obj);
+			ReleaseHandle(obj);
+		}
+	}
+	
+	/**
+	 * Unregisters the PhysicsObject a handle refers to; stale handles are ignored
+	 * @param handle Handle returned when the PhysicsObject was registered
+	 */
+	public void UnregisterObject(int handle)
+	{
+		PhysicsObject obj = GetObject(handle);
+		if (obj != null)
+			UnregisterObject(obj);
+	}
+	
+	/**
+	 * Unregisters many PhysicsObjects at once
+	 * @param objs PhysicsObjects to unregister
+	 */
+	public void UnregisterObjects(Collection<? extends PhysicsObject> objs)
+	{
+		for (PhysicsObject obj : objs)
+			UnregisterObject(obj);
+	}
+	
+	/**
+	 * @param handle Handle returned when a PhysicsObject was registered
+	 * @return PhysicsObject the handle refers to, or null if it has since been unregistered
+	 */
+	public PhysicsObject GetObject(int handle)
+	{
+		int index = handle & HANDLE_INDEX_MASK;
+		if (handle < 0 || index >= m_handleCount || m_handleGenerations[index] != handle >>> HANDLE_INDEX_BITS)
+			return null;
+		return m_handleObjects[index];
+	}
+	
+	private int AcquireHandle(PhysicsObject obj)
+	{
+		if (obj.m_handle != INVALID_HANDLE && GetObject(obj.m_handle) == obj)//already has one
+			return obj.m_handle;
+		
+		int index;
+		if (m_freeHandleCount > 0)
+			index = m_freeHandles[--m_freeHandleCount];
+		else
+		{
+			if (m_handleCount == m_handleObjects.length)
+			{
+				m_handleObjects = Arrays.copyOf(m_handleObjects, m_handleCount * 2);
+				m_handleGenerations = Arrays.copyOf(m_handleGenerations, m_handleCount * 2);
+				m_freeHandles = Arrays.copyOf(m_freeHandles, m_handleCount * 2);
+			}
+			index = m_handleCount++;
+		}
+		m_handleObjects[index] = obj;
+		obj.m_handle = (m_handleGenerations[index] << HANDLE_INDEX_BITS) | index;
+		return obj.m_handle;
+	}
+	
+	private void ReleaseHandle(PhysicsObject obj)
+	{
+		if (obj.m_handle == INVALID_HANDLE || GetObject(obj.m_handle) != obj)
+			return;
+		
+		//bump the generation so the old handle no longer matches whatever uses the entry next
+		int index = obj.m_handle & HANDLE_INDEX_MASK;
+		m_handleObjects[index] = null;
+		m_handleGenerations[index] = (m_handleGenerations[index] + 1) & HANDLE_GENERATION_MASK;
+		m_freeHandles[m_freeHandleCount++] = index;
+		obj.m_handle = INVALID_HANDLE;
+	}
+	
+	private void QueueChange(PhysicsObject obj, boolean register)
+	{
+		if (m_pendingCount == m_pendingObjects.length)
+		{
+			m_pendingObjects = Arrays.copyOf(m_pendingObjects, m_pendingCount * 2);
+			m_pendingRegistrations = Arrays.copyOf(m_pendingRegistrations, m_pendingCount * 2);
+		}
+		m_pendingObjects[m_pendingCount] = obj;
+		m_pendingRegistrations[m_pendingCount] = register;
+		m_pendingCount++;
+	}
+	
+	private void ApplyPendingChanges()
+	{
+		for (int i = 0; i < m_pendingCount; i++)
+		{
+			PhysicsObject obj = m_pendingObjects[i];
+			m_pendingObjects[i] = null;
+			if (m_pendingRegistrations[i])
+			{
+				//an unregistration queued before this one will have released the handle it was given
+				AcquireHandle(obj);
+				AddBody(obj);
+			}
+			else
+			{
+				RemoveBody(obj);
+				ReleaseHandle(obj);
+			}
+		}
+		m_pendingCount = 0;
+	}
+	
+	private void AddBody(PhysicsObject obj)
+	{
+		if (obj.m_slot >= 0)//already registered
+			return;
+		
+		if (m_bodyCount == m_bodies.length)
+			AllocateBodies(m_bodyCount * 2);
+		
+		//move the PhysicsObject's state into the packed arrays, where it lives for as long as the PhysicsObject is registered
+		int slot = m_bodyCount++;
+		m_bodies[slot] = obj;
+		m_bodyBounds[slot] = obj.m_bounds;
+		m_posX[slot] = obj.m_posX;
+		m_posY[slot] = obj.m_posY;
+		m_velX[slot] = obj.m_velocityX;
+		m_velY[slot] = obj.m_velocityY;
+		m_accX[slot] = obj.m_accelX;
+		m_accY[slot] = obj.m_accelY;
+		m_mass[slot] = obj.m_mass;
+		m_collided[slot] = obj.m_collidedLastFrame;
+		m_awake[slot] = true;
+		m_sleepTime[slot] = 0.0;
+		m_islandNext[slot] = slot;
+		m_dormant[slot] = false;
+		obj.m_slot = slot;
+		obj.m_id = m_nextID++;
+		CacheShape(slot);
+		if (obj.m_activator)
+			m_activators.add(obj);
+		
+		m_moved[slot] = true;
+		if (obj.m_interType == InteractionType.Static)
+			m_staticIndexDirty = true;
+		else if (obj.m_interType == InteractionType.Ghost)
+			m_triggers.Insert(obj);
+		else
+			m_broadphase.Insert(obj);
+	}
+	
+	private void RemoveBody(PhysicsObject obj)
+	{
+		int slot = obj.m_slot;
+		if (slot < 0 || m_bodies[slot] != obj)
+			return;
+		
+		//whatever was resting on the PhysicsObject may need to move once it's gone, and so may what was frozen outside of its region
+		WakeBody(slot);
+		if (obj.m_activator)
+			m_activators.remove(obj);
+		if (obj.m_interType == InteractionType.Static)
+			m_staticIndexDirty = true;
+		else if (obj.m_interType == InteractionType.Ghost)
+			m_triggers.Remove(obj);
+		else
+			m_broadphase.Remove(obj);
+		
+		//hand the state back to the PhysicsObject so it survives being re-registered later
+		obj.m_posX = m_posX[slot];
+		obj.m_posY = m_posY[slot];
+		obj.m_velocityX = m_velX[slot];
+		obj.m_velocityY = m_velY[slot];
+		obj.m_accelX = m_accX[slot];
+		obj.m_accelY = m_accY[slot];
+		obj.m_mass = m_mass[slot];
+		obj.m_collidedLastFrame = m_collided[slot];
+		obj.m_slot = -1;
+		
+		//fill the hole with the last body so the arrays stay contiguous
+		int last = --m_bodyCount;
+		if (slot != last)
+			MoveBody(last, slot);
+		m_bodies[last] = null;
+		m_bodyBounds[last] = null;
+	}
+	
+	/**
+	 * Refreshes the cached dimensions of a registered PhysicsObject's CollisionBounds
+	 * Must be called after resizing the Circle or Rectangle of a registered PhysicsObject, or moving the shapes of a compound relative to each other
+	 * @param obj PhysicsObject whose CollisionBounds were resized
+	 */
+	public void NotifyOfResize(PhysicsObject obj)
+	{
+		if (obj.m_slot < 0)
+			return;
+		CacheShape(obj.m_slot);
+		NotifyOfMovement(obj);
+	}
+	
+	private void CacheShape(int slot)
+	{
+		CollisionBounds bounds = m_bodyBounds[slot];
+		bounds.FitEnclosingBox();
+		m_shape[slot] = ShapeOf(bounds);
+		m_extentX[slot] = (bounds.GetRight() - bounds.GetLeft()) * 0.5;
+		m_extentY[slot] = (bounds.GetBottom() - bounds.GetTop()) * 0.5;
+		m_offsetX[slot] = (bounds.GetLeft() + bounds.GetRight()) * 0.5 - m_posX[slot];
+		m_offsetY[slot] = (bounds.GetTop() + bounds.GetBottom()) * 0.5 - m_posY[slot];
+		m_radius[slot] = bounds.m_boundsType == BoundsType.Circle ? bounds.m_circle.Radius : Double.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * @return SHAPE_* matching the type of the CollisionBounds
+	 */
+	static byte ShapeOf(CollisionBounds bounds)
+	{
+		return bounds.m_boundsType == BoundsType.Circle ? SHAPE_CIRCLE : bounds.m_boundsType == BoundsType.Rectangle ? SHAPE_RECTANGLE : SHAPE_COMPOUND;
+	}
+	
+	private void MoveBody(int from, int to)
+	{
+		m_bodies[to] = m_bodies[from];
+		m_bodyBounds[to] = m_bodyBounds[from];
+		m_posX[to] = m_posX[from];
+		m_posY[to] = m_posY[from];
+		m_velX[to] = m_velX[from];
+		m_velY[to] = m_velY[from];
+		m_accX[to] = m_accX[from];
+		m_accY[to] = m_accY[from];
+		m_dispX[to] = m_dispX[from];
+		m_dispY[to] = m_dispY[from];
+		m_mass[to] = m_mass[from];
+		m_shape[to] = m_shape[from];
+		m_extentX[to] = m_extentX[from];
+		m_extentY[to] = m_extentY[from];
+		m_offsetX[to] = m_offsetX[from];
+		m_offsetY[to] = m_offsetY[from];
+		m_radius[to] = m_radius[from];
+		m_collided[to] = m_collided[from];
+		m_awake[to] = m_awake[from];
+		m_moved[to] = m_moved[from];
+		m_sleepTime[to] = m_sleepTime[from];
+		m_dormant[to] = m_dormant[from];
+		m_frozenVelX[to] = m_frozenVelX[from];
+		m_frozenVelY[to] = m_frozenVelY[from];
+		m_frozenTime[to] = m_frozenTime[from];
+		
+		//repoint the ring of a sleeping island at the body's new slot
+		if (m_islandNext[from] == from)
+			m_islandNext[to] = to;
+		else
+		{
+			int previous = m_islandNext[from];
+			while (m_islandNext[previous] != from)
+				previous = m_islandNext[previous];
+			m_islandNext[previous] = to;
+			m_islandNext[to] = m_islandNext[from];
+		}
+		m_bodies[to].m_slot = to;
+	}
+	
+	private void AllocateBodies(int capacity)
+	{
+		if (m_bodies == null)
+		{
+			m_bodies = new PhysicsObject[capacity];
+			m_bodyBounds = new CollisionBounds[capacity];
+			m_posX = new double[capacity];
+			m_posY = new double[capacity];
+			m_velX = new double[capacity];
+			m_velY = new double[capacity];
+			m_accX = new double[capacity];
+			m_accY = new double[capacity];
+			m_dispX = new double[capacity];
+			m_dispY = new double[capacity];
+			m_mass = new double[capacity];
+			m_shape = new byte[capacity];
+			m_extentX = new double[capacity];
+			m_extentY = new double[capacity];
+			m_offsetX = new double[capacity];
+			m_offsetY = new double[capacity];
+			m_radius = new double[capacity];
+			m_collided = new boolean[capacity];
+			m_awake = new boolean[capacity];
+			m_moved = new boolean[capacity];
+			m_sleepTime = new double[capacity];
+			m_islandNext = new int[capacity];
+			m_islandParent = new int[capacity];
+			m_islandSleepTime = new double[capacity];
+			m_dormant = new boolean[capacity];
+			m_frozenVelX = new double[capacity];
+			m_frozenVelY = new double[capacity];
+			m_frozenTime = new double[capacity];
+			return;
+		}
+		
+		m_bodies = Arrays.copyOf(m_bodies, capacity);
+		m_bodyBounds = Arrays.copyOf(m_bodyBounds, capacity);
+		m_posX = Arrays.copyOf(m_posX, capacity);
+		m_posY = Arrays.copyOf(m_posY, capacity);
+		m_velX = Arrays.copyOf(m_velX, capacity);
+		m_velY = Arrays.copyOf(m_velY, capacity);
+		m_accX = Arrays.copyOf(m_accX, capacity);
+		m_accY = Arrays.copyOf(m_accY, capacity);
+		m_dispX = Arrays.copyOf(m_dispX, capacity);
+		m_dispY = Arrays.copyOf(m_dispY, capacity);
+		m_mass = Arrays.copyOf(m_mass, capacity);
+		m_shape = Arrays.copyOf(m_shape, capacity);
+		m_extentX = Arrays.copyOf(m_extentX, capacity);
+		m_extentY = Arrays.copyOf(m_extentY, capacity);
+		m_offsetX = Arrays.copyOf(m_offsetX, capacity);
+		m_offsetY = Arrays.copyOf(m_offsetY, capacity);
+		m_radius = Arrays.copyOf(m_radius, capacity);
+		m_collided = Arrays.copyOf(m_collided, capacity);
+		m_awake = Arrays.copyOf(m_awake, capacity);
+		m_moved = Arrays.copyOf(m_moved, capacity);
+		m_sleepTime = Arrays.copyOf(m_sleepTime, capacity);
+		m_islandNext = Arrays.copyOf(m_islandNext, capacity);
+		m_islandParent = new int[capacity];
+		m_islandSleepTime = new double[capacity];
+		m_dormant = Arrays.copyOf(m_dormant, capacity);
+		m_frozenVelX = Arrays.copyOf(m_frozenVelX, capacity);
+		m_frozenVelY = Arrays.copyOf(m_frozenVelY, capacity);
+		m_frozenTime = Arrays.copyOf(m_frozenTime, capacity);
+	}
+	
+	/**
+	 * Selects the strategy used to find moving PhysicsObjects that may be colliding
+	 * Static PhysicsObjects are always kept in a separate index that's only rebuilt when they change, and Ghosts in one that's only checked against things that move
+	 * All registered PhysicsObjects are re-indexed with the new strategy
+	 * @param type Broadphase strategy to use
+	 */
+	public void SetBroadphase(BroadphaseType type)
+	{
+		//discard the old index before building the new one, since PhysicsObjects only hold one proxy handle each
+		if (m_broadphase != null)
+		{
+			for (int i = 0; i < m_bodyCount; i++)
+			{
+				if (IsInBroadphase(m_bodies[i]))
+					m_broadphase.Remove(m_bodies[i]);
+			}
+		}
+		
+		m_broadphaseType = type;
+		switch (type)
+		{
+			case UniformGrid:
+				m_broadphase = new UniformGrid(m_gridCellSize);
+				break;
+			case SweepAndPrune:
+				m_broadphase = new SweepAndPrune();
+				break;
+			case DynamicTree:
+				m_broadphase = new DynamicTree(DynamicTree.DEFAULT_MARGIN);
+				break;
+			default:
+				m_broadphase = new BruteForceBroadphase(this);
+				break;
+		}
+		
+		for (int i = 0; i < m_bodyCount; i++)
+		{
+			if (IsInBroadphase(m_bodies[i]))
+				m_broadphase.Insert(m_bodies[i]);
+		}
+	}
+	
+	/**
+	 * Sets the width and height of the cells used by BroadphaseType.UniformGrid
+	 * Cells should be somewhat larger than the typical PhysicsObject
+	 * @param cellSize Size of a cell; must be greater than 0
+	 */
+	public void SetGridCellSize(double cellSize)
+	{
+		m_gridCellSize = cellSize <= EPSILON ? EPSILON : cellSize;
+		if (m_broadphaseType == BroadphaseType.UniformGrid)
+			SetBroadphase(BroadphaseType.UniformGrid);
+	}
+	
+	/**
+	 * Sets whether or not candidate pairs are tested for collision on multiple threads
+	 * Collisions are always resolved in the same order, so this only changes how fast a step is, never its outcome
+	 * @param parallel Whether or not to test pairs in parallel
+	 */
+	public void SetParallelNarrowphase(boolean parallel)
+	{
+		m_parallelNarrowphase = parallel;
+	}
+
+	/**
+	 * Sets whether or not candidate pairs are filtered several at a time using SIMD instructions
+	 * This needs the classes in the incubator source folder, and a JVM started with --add-modules jdk.incubator.vector
+	 * Without them, pairs are filtered one at a time as usual; either way the outcome is the same
+	 * @param vectorized Whether or not to use SIMD instructions when they're available
+	 */
+	public void SetVectorNarrowphase(boolean vectorized)
+	{
+		m_overlapFilter = m_scalarOverlapFilter;
+		if (!vectorized)
+			return;
+		
+		try
+		{
+			m_overlapFilter = (OverlapFilter)Class.forName("MechSim.Physics.VectorOverlapFilter").getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError e)
+		{
+			//not compiled in, or the module isn't there, so stay scalar
+		}
+	}
+	
+	/**
+	 * Sets how many equal substeps each call to Step is split into
+	 * More substeps make fast PhysicsObjects collide more accurately, at a proportional cost
+	 * @param substeps Number of substeps; values less than 1 are treated as 1
+	 */
+	public void SetSubsteps(int substeps)
+	{
+		m_substeps = substeps < 1 ? 1 : substeps;
+	}
+	
+	/**
+	 * Sets the scheme used to advance PhysicsObjects over each step
+	 * @param type Integration scheme to use
+	 */
+	public void SetIntegrator(IntegratorType type)
+	{
+		m_integratorType = type;
+		switch (type)
+		{
+			case SemiImplicitEuler:
+				m_integrator = new SemiImplicitEulerIntegrator();
+				break;
+			case RK4:
+				m_integrator = new RungeKuttaIntegrator();
+				break;
+			default:
+				m_integrator = new VerletIntegrator();
+		}
+	}
+	
+	/**
+	 * Sets how many passes the contact solver makes over the contacts found each step
+	 * The solver pushes every contact apart together and carries impulses over between steps, so stacks and pileups stay stable
+	 * 0 instead resolves each contact once, on its own, by nudging the pair apart and reflecting their velocities
+	 * @param iterations Number of passes; values less than 0 are treated as 0
+	 */
+	public void SetSolverIterations(int iterations)
+	{
+		m_solverIterations = iterations < 0 ? 0 : iterations;
+		if (m_solverIterations == 0)
+			m_solver.Reset();
+	}
+	
+	/**
+	 * Sets how often PhysicsObjects frozen outside of every activation region get a coarse update
+	 * Each one catches up on the time it missed and is simulated for a single step, then frozen again if it's still outside
+	 * Updates are staggered, so roughly an equal share of the frozen PhysicsObjects are updated each step
+	 * @param steps Steps between the updates of each frozen PhysicsObject, or 0 to keep them frozen until a region reaches them; negative values are treated as 0
+	 */
+	public void SetDormantUpdateInterval(int steps)
+	{
+		m_dormantInterval = steps < 0 ? 0 : steps;
+	}
+	
+	/**
+	 * Sets whether or not PhysicsObjects that come to rest are put to sleep until something disturbs them
+	 * @param enabled Whether or not PhysicsObjects may sleep
+	 */
+	public void SetSleepingEnabled(boolean enabled)
+	{
+		m_sleepingEnabled = enabled;
+		if (!enabled)
+		{
+			for (int i = 0; i < m_bodyCount; i++)
+				WakeBody(i);
+		}
+	}
+	
+	/**
+	 * Sets the speed below which a PhysicsObject is considered to be resting
+	 * @param velocity Speed threshold; negative values are treated as 0
+	 */
+	public void SetSleepVelocity(double velocity)
+	{
+		m_sleepVelocity = velocity < 0.0 ? 0.0 : velocity;
+	}
+	
+	/**
+	 * Sets how long a group of touching PhysicsObjects must rest before it is put to sleep
+	 * @param delay Time, in the same units passed to Step; negative values are treated as 0
+	 */
+	public void SetSleepDelay(double delay)
+	{
+		m_sleepDelay = delay < 0.0 ? 0.0 : delay;
+	}
+
+	/**
+	 * Sets the coefficient of friction, which is the energy lost as a GameObject moves as a percentage
+	 * @param friction Coefficient, as a value between 0.0 and 1.0, inclusive
+	 */
+	public void SetFriction(double friction)
+	{
+		//The internal m_friction is calculated so that it represents energy conserved each millisecond rather than energy lost every millisecond
+		//makes the friction-applying code simpler and easier
+		m_friction = 1.0 - (friction < 0.0 ? 0.0 : friction > 1.0 ? 1.0 : friction);
+		m_frictionTimeDelta = Double.NaN;//recalculate the cached factor on the next step
+	}
+
+	/**
+	 * Sets the coefficient of restitution, which is the energy lost in collisions as a percentage
+	 * @param coefficient Coefficient, as a value between 0.0 and 1.0, inclusive
+	 */
+	public void SetCoefficientOfRestitution(double coefficient)
+	{
+		m_coefficientRestitution = coefficient < 0.0 ? 0.0 : coefficient > 1.0 ? 1.0 : coefficient;
+	}
+	
+	/**
+	 * @return The energy retained as a PhysicsObject moves as a percentage between 0.0 and 1.0, inclusive
+	 */
+	public double GetFriction() { return m_friction; }
+	
+	/**
+	 * @return The energy lost in collisions as a percentage between 0.0 and 1.0, inclusive
+	 */
+	public double GetCoefficientOfRestitution() { return m_coefficientRestitution; }
+	
+	/**
+	 * @return Strategy currently used to find PhysicsObjects that may be colliding
+	 */
+	public BroadphaseType GetBroadphase() { return m_broadphaseType; }
+	
+	/**
+	 * @return Width and height of the cells used by BroadphaseType.UniformGrid
+	 */
+	public double GetGridCellSize() { return m_gridCellSize; }
+	
+	/**
+	 * @return Whether or not candidate pairs are tested for collision on multiple threads
+	 */
+	public boolean GetParallelNarrowphase() { return m_parallelNarrowphase; }
+	
+	/**
+	 * @return Whether or not candidate pairs are actually being filtered using SIMD instructions
+	 */
+	public boolean GetVectorNarrowphase() { return m_overlapFilter != m_scalarOverlapFilter; }
+	
+	/**
+	 * @return Number of equal substeps each call to Step is split into
+	 */
+	public int GetSubsteps() { return m_substeps; }
+	
+	/**
+	 * @return Scheme used to advance PhysicsObjects over each step
+	 */
+	public IntegratorType GetIntegrator() { return m_integratorType; }
+	
+	/**
+	 * @return Number of passes the contact solver makes over the contacts found each step, or 0 if it isn't used
+	 */
+	public int GetSolverIterations() { return m_solverIterations; }
+	
+	/**
+	 * @return Whether or not PhysicsObjects that come to rest are put to sleep
+	 */
+	public boolean GetSleepingEnabled() { return m_sleepingEnabled; }
+	
+	/**
+	 * @return Speed below which a PhysicsObject is considered to be resting
+	 */
+	public double GetSleepVelocity() { return m_sleepVelocity; }
+	
+	/**
+	 * @return How long a group of touching PhysicsObjects must rest before it is put to sleep
+	 */
+	public double GetSleepDelay() { return m_sleepDelay; }
+	
+	/**
+	 * @return Steps between the coarse updates of each frozen PhysicsObject, or 0 if they stay frozen until a region reaches them
+	 */
+	public int GetDormantUpdateInterval() { return m_dormantInterval; }
 		
 	/**
 	 * @return All PhysicsObject currently registered to be updated
 	 */
-	public Iterator<PhysicsObject> GetPhysicsObjectIterator() { return m_objects.iterator(); }
+	public Iterator<PhysicsObject> GetPhysicsObjectIterator() { return Arrays.asList(m_bodies).subList(0, m_bodyCount).iterator(); }
 }
@@ -15,24 +15,39 @@ import MechSim.Graphics.SelfRendering;
  */
 public final class PhysicsObject implements SelfRendering
 {
+	public static final int DEFAULT_CATEGORY = 1, ALL_CATEGORIES = 0xFFFFFFFF;
 	static final Color DEFAULT_COLOR = Color.BLACK;
 	static final Color NOT_COLLIDING_COLOR = Color.GREEN, COLLIDING_COLOR = Color.RED;
 	
 	PhysicsModel m_physicsModel;
 	InteractionType m_interType;
 	CollisionBounds m_bounds;
+	
+	//physical state while not registered - once registered, the state lives in the PhysicsModel's arrays at m_slot
+	int m_slot;
 	double m_mass;
 	double m_posX, m_posY;
 	double m_velocityX, m_velocityY;
 	double m_accelX, m_accelY;
 	double m_rotation;
 
+	boolean m_continuous;//whether or not movement is swept to keep from passing through things
+	boolean m_activator;//whether or not the PhysicsObject has an activation region around it
+	double m_activationRadius;
+	int m_category, m_mask;//layers the PhysicsObject belongs to, and layers it can collide with
+
 	Color m_color;
 	boolean m_render;
 	
 	List<CollisionListener> m_listeners;
+	List<ContactListener> m_beginListeners, m_stayListeners, m_endListeners;
 	boolean m_collidedLastFrame;
 	
+	int m_proxy;//handle into the PhysicsModel's broadphase, or -1 if not indexed
+	int m_id;//unique within the PhysicsModel, used to order collisions deterministically
+	int m_handle;//handle given out by the PhysicsModel when registered
+	StaticCollider m_collider;//StaticCollider this PhysicsObject stands in for, if any
+	
 	/**
 	 * Constructs a PhysicsObject that physically interacts with the rest of the simulated world
 	 * @param physics PhysicsModel applied to the PhysicsObject
@@ -77,37 +92,14 @@ public final class PhysicsObject implements SelfRendering
 		m_render = true;
 		m_color = DEFAULT_COLOR;
 		m_listeners = new ArrayList<CollisionListener>();
-	}
-	
-	/**
-	 * Updates the PhysicsObject's physical properties
-	 * @param timeDelta Time since last update
-	 */
-	public void Update(double timeDelta)
-	{
-		m_collidedLastFrame = false;
-		if (m_interType == InteractionType.Kinetic || m_interType == InteractionType.Ghost || m_velocityX != 0.0 || m_velocityY != 0.0)
-			m_physicsModel.PerformCollisionFor(this);
-		
-		double dX = m_velocityX * timeDelta + m_accelX * timeDelta * timeDelta * 0.5, dY = m_velocityY * timeDelta + m_accelY * timeDelta * timeDelta * 0.5,
-		friction = Math.pow(m_physicsModel.m_friction, timeDelta);
-		if (m_bounds.m_boundsType == BoundsType.Circle)
-		{
-			m_bounds.m_circle.X += dX;
-			m_bounds.m_circle.Y += dY;
-		}
-		else
-		{
-			m_bounds.m_rect.m_x += dX;
-			m_bounds.m_rect.m_y += dY;
-			m_bounds.m_rect.m_right = m_bounds.m_rect.m_x + m_bounds.m_rect.m_width;
-			m_bounds.m_rect.m_bottom = m_bounds.m_rect.m_y + m_bounds.m_rect.m_height;
-		}
-		m_posX += dX;
-		m_posY += dY;
-		m_velocityX = m_velocityX * friction + m_accelX * timeDelta;
-		m_velocityY = m_velocityY * friction + m_accelY * timeDelta;
-		m_accelX = m_accelY = 0;
+		m_beginListeners = new ArrayList<ContactListener>();
+		m_stayListeners = new ArrayList<ContactListener>();
+		m_endListeners = new ArrayList<ContactListener>();
+		m_proxy = -1;
+		m_slot = -1;
+		m_handle = PhysicsModel.INVALID_HANDLE;
+		m_category = DEFAULT_CATEGORY;
+		m_mask = ALL_CATEGORIES;
 	}
 	
 	/**
@@ -119,10 +111,14 @@ public final class PhysicsObject implements SelfRendering
 		if (m_render)
 		{
 			g.setColor(m_color);
-			if (m_bounds.m_boundsType == BoundsType.Circle)
-				g.fillOval((int)(m_bounds.GetCollisionCircle().X - m_bounds.GetCollisionCircle().Radius), (int)(m_bounds.GetCollisionCircle().Y - m_bounds.GetCollisionCircle().Radius), (int)(m_bounds.GetCollisionCircle().Radius * 2.0), (int)(m_bounds.GetCollisionCircle().Radius * 2.0));
-			else
-				g.fillRect((int)m_bounds.GetCollisionRectangle().m_x, (int)m_bounds.GetCollisionRectangle().m_y, (int)m_bounds.GetCollisionRectangle().m_width, (int)m_bounds.GetCollisionRectangle().m_height);
+			for (int i = 0; i < m_bounds.GetPartCount(); i++)
+			{
+				CollisionBounds part = m_bounds.GetPart(i);
+				if (part.m_boundsType == BoundsType.Circle)
+					g.fillOval((int)(part.GetCollisionCircle().X - part.GetCollisionCircle().Radius), (int)(part.GetCollisionCircle().Y - part.GetCollisionCircle().Radius), (int)(part.GetCollisionCircle().Radius * 2.0), (int)(part.GetCollisionCircle().Radius * 2.0));
+				else
+					g.fillRect((int)part.GetCollisionRectangle().m_x, (int)part.GetCollisionRectangle().m_y, (int)part.GetCollisionRectangle().m_width, (int)part.GetCollisionRectangle().m_height);
+			}
 		}
 	}
 	
@@ -133,11 +129,15 @@ public final class PhysicsObject implements SelfRendering
 	 */
 	public void RenderWireframe(Graphics2D g, ImageObserver renderer)
 	{
-		g.setColor(m_collidedLastFrame ? COLLIDING_COLOR : NOT_COLLIDING_COLOR);
-		if (m_bounds.m_boundsType == BoundsType.Circle)
-			g.drawOval((int)(m_bounds.GetCollisionCircle().X - m_bounds.GetCollisionCircle().Radius), (int)(m_bounds.GetCollisionCircle().Y - m_bounds.GetCollisionCircle().Radius), (int)(m_bounds.GetCollisionCircle().Radius * 2.0), (int)(m_bounds.GetCollisionCircle().Radius * 2.0));
-		else
-			g.drawRect((int)m_bounds.GetCollisionRectangle().m_x, (int)m_bounds.GetCollisionRectangle().m_y, (int)m_bounds.GetCollisionRectangle().m_width, (int)m_bounds.GetCollisionRectangle().m_height);
+		g.setColor(CollidedLastFrame() ? COLLIDING_COLOR : NOT_COLLIDING_COLOR);
+		for (int i = 0; i < m_bounds.GetPartCount(); i++)
+		{
+			CollisionBounds part = m_bounds.GetPart(i);
+			if (part.m_boundsType == BoundsType.Circle)
+				g.drawOval((int)(part.GetCollisionCircle().X - part.GetCollisionCircle().Radius), (int)(part.GetCollisionCircle().Y - part.GetCollisionCircle().Radius), (int)(part.GetCollisionCircle().Radius * 2.0), (int)(part.GetCollisionCircle().Radius * 2.0));
+			else
+				g.drawRect((int)part.GetCollisionRectangle().m_x, (int)part.GetCollisionRectangle().m_y, (int)part.GetCollisionRectangle().m_width, (int)part.GetCollisionRectangle().m_height);
+		}
 	}
 	
 	/**
@@ -146,9 +146,62 @@ public final class PhysicsObject implements SelfRendering
 	 */
 	void NotifyOfCollision(PhysicsObject other)
 	{
-		m_collidedLastFrame = true;
-		for (CollisionListener listener : m_listeners)
-			listener.NotifyOfCollision(this, other);
+		if (m_slot >= 0)
+			m_physicsModel.m_collided[m_slot] = true;
+		else
+			m_collidedLastFrame = true;
+		for (int i = 0; i < m_listeners.size(); i++)
+			m_listeners.get(i).NotifyOfCollision(this, other);
+	}
+	
+	/**
+	 * Notifies the listeners subscribed to a stage of contact
+	 * Contacts that begin or stay also count as collisions, and are passed on to the CollisionListeners
+	 * @param other PhysicsObject being touched
+	 * @param type Stage of the contact
+	 */
+	void NotifyOfContact(PhysicsObject other, ContactEventType type)
+	{
+		if (type != ContactEventType.End)
+			NotifyOfCollision(other);
+		
+		List<ContactListener> listeners = GetContactListeners(type);
+		for (int i = 0; i < listeners.size(); i++)
+			listeners.get(i).NotifyOfContact(this, other, type);
+	}
+	
+	/**
+	 * The ContactListener will be notified whenever a contact of this PhysicsObject reaches the given stage
+	 * A listener only interested in contacts beginning is never called for the steps they stay in contact
+	 * @param listener Subscribing listener
+	 * @param type Stage of contact to be notified of
+	 */
+	public void RegisterContactListener(ContactListener listener, ContactEventType type)
+	{
+		GetContactListeners(type).add(listener);
+	}
+	
+	/**
+	 * The ContactListener will no longer be notified when a contact of this PhysicsObject reaches the given stage
+	 * @param listener Unsubscribing listener
+	 * @param type Stage of contact to no longer be notified of
+	 */
+	public void UnregisterContactListener(ContactListener listener, ContactEventType type)
+	{
+		GetContactListeners(type).remove(listener);
+	}
+	
+	private List<ContactListener> GetContactListeners(ContactEventType type)
+	{
+		switch (type)
+		{
+			case Begin:
+				return m_beginListeners;
+			case Stay:
+				return m_stayListeners;
+			default:
+				return m_endListeners;
+		}
 	}
 	
 	/**
@@ -182,7 +235,7 @@ public final class PhysicsObject implements SelfRendering
 	/**
 	 * @return Whether or not the PhysicsObject collided last frame
 	 */
-	public boolean CollidedLastFrame() { return m_collidedLastFrame; }
+	public boolean CollidedLastFrame() { return m_slot >= 0 ? m_physicsModel.m_collided[m_slot] : m_collidedLastFrame; }
 	
 	/**
 	 * @return Color the PhysicsObject is rendered with
@@ -212,32 +265,32 @@ public final class PhysicsObject implements SelfRendering
 	/**
 	 * @return X position of the PhysicsObject in world space
 	 */
-	public double GetPositionX() { return m_posX; }
+	public double GetPositionX() { return m_slot >= 0 ? m_physicsModel.m_posX[m_slot] : m_posX; }
 
 	/**
 	 * @return Y position of the PhysicsObject in world space
 	 */
-	public double GetPositionY() { return m_posY; }
+	public double GetPositionY() { return m_slot >= 0 ? m_physicsModel.m_posY[m_slot] : m_posY; }
 
 	/**
 	 * @return Current velocity of the PhysicsObject in the X dimension
 	 */
-	public double GetVelocityX() { return m_velocityX; }
+	public double GetVelocityX() { return m_slot < 0 ? m_velocityX : m_physicsModel.m_dormant[m_slot] ? m_physicsModel.m_frozenVelX[m_slot] * m_physicsModel.FrozenDecay(m_slot) : m_physicsModel.m_velX[m_slot]; }
 
 	/**
 	 * @return Current velocity of the PhysicsObject in the Y dimension
 	 */
-	public double GetVelocityY() { return m_velocityY; }
+	public double GetVelocityY() { return m_slot < 0 ? m_velocityY : m_physicsModel.m_dormant[m_slot] ? m_physicsModel.m_frozenVelY[m_slot] * m_physicsModel.FrozenDecay(m_slot) : m_physicsModel.m_velY[m_slot]; }
 	
 	/**
 	 * @return Current acceleration of the PhysicsObject in the X dimension
 	 */
-	public double GetAccelerationX() { return m_accelX; }
+	public double GetAccelerationX() { return m_slot >= 0 ? m_physicsModel.m_accX[m_slot] : m_accelX; }
 
 	/**
 	 * @return Current acceleration of the PhysicsObject in the Y dimension
 	 */
-	public double GetAccelerationY() { return m_accelY; }
+	public double GetAccelerationY() { return m_slot >= 0 ? m_physicsModel.m_accY[m_slot] : m_accelY; }
 
 	/**
 	 * @return The physics model used by the PhysicsObject
@@ -252,7 +305,7 @@ public final class PhysicsObject implements SelfRendering
 	/**
 	 * @return Mass of the PhysicsObject, in kilograms
 	 */
-	public final double GetMass() { return m_mass; }
+	public final double GetMass() { return m_slot >= 0 ? m_physicsModel.m_mass[m_slot] : m_mass; }
 		
 	/**
 	 * Applies a Newtonion force to the PhysicsObject
@@ -261,7 +314,8 @@ public final class PhysicsObject implements SelfRendering
 	 */
 	public void ApplyForce(double forceX, double forceY)
 	{
-		ApplyAcceleration(forceX / m_mass, forceY / m_mass);
+		double mass = GetMass();
+		ApplyAcceleration(forceX / mass, forceY / mass);
 	}
 	
 	/**
@@ -271,8 +325,17 @@ public final class PhysicsObject implements SelfRendering
 	 */
 	public void ApplyAcceleration(double accelX, double accelY)
 	{
-		m_accelX += accelX;
-		m_accelY += accelY;
+		if (m_slot >= 0)
+		{
+			m_physicsModel.WakeBody(m_slot);
+			m_physicsModel.m_accX[m_slot] += accelX;
+			m_physicsModel.m_accY[m_slot] += accelY;
+		}
+		else
+		{
+			m_accelX += accelX;
+			m_accelY += accelY;
+		}
 	}
 	
 	/**
@@ -282,8 +345,17 @@ public final class PhysicsObject implements SelfRendering
 	 */
 	public final void SetAcceleration(double accelX, double accelY)
 	{
-		m_accelX = accelX;
-		m_accelY = accelY;
+		if (m_slot >= 0)
+		{
+			m_physicsModel.WakeBody(m_slot);
+			m_physicsModel.m_accX[m_slot] = accelX;
+			m_physicsModel.m_accY[m_slot] = accelY;
+		}
+		else
+		{
+			m_accelX = accelX;
+			m_accelY = accelY;
+		}
 	}
 	
 	/**
@@ -293,20 +365,89 @@ public final class PhysicsObject implements SelfRendering
 	 */
 	public void SetPosition(double x, double y)
 	{
-		if (m_bounds.GetBoundsType() == BoundsType.Circle)
+		if (m_slot >= 0)
 		{
-			m_bounds.GetCollisionCircle().X += x - m_posX;
-			m_bounds.GetCollisionCircle().Y += y - m_posY;
+			m_physicsModel.WakeBody(m_slot);
+			double[] posX = m_physicsModel.m_posX, posY = m_physicsModel.m_posY;
+			m_bounds.Translate(x - posX[m_slot], y - posY[m_slot]);
+			posX[m_slot] = x;
+			posY[m_slot] = y;
+			m_physicsModel.NotifyOfMovement(this);
 		}
 		else
 		{
-			m_bounds.GetCollisionRectangle().m_x += x - m_posX;
-			m_bounds.GetCollisionRectangle().m_y += y - m_posY;
+			m_bounds.Translate(x - m_posX, y - m_posY);
+			m_posX = x;
+			m_posY = y;
 		}
-		m_posX = x;
-		m_posY = y;
 	}
 	
+	/**
+	 * Sets the collision layers of the PhysicsObject
+	 * Two PhysicsObjects are only checked for collision if each one's category is in the other's mask, so whole classes of pairs can be skipped cheaply
+	 * @param category Bits for the layers the PhysicsObject belongs to
+	 * @param mask Bits for the layers the PhysicsObject can collide with
+	 */
+	public void SetCollisionFilter(int category, int mask)
+	{
+		m_category = category;
+		m_mask = mask;
+	}
+	
+	/**
+	 * @return Bits for the layers the PhysicsObject belongs to
+	 */
+	public int GetCollisionCategory() { return m_category; }
+	
+	/**
+	 * @return Bits for the layers the PhysicsObject can collide with
+	 */
+	public int GetCollisionMask() { return m_mask; }
+	
+	/**
+	 * @return Whether or not the collision layers of two PhysicsObjects allow them to collide
+	 */
+	boolean CanCollideWith(PhysicsObject other)
+	{
+		return (m_category & other.m_mask) != 0 && (other.m_category & m_mask) != 0;
+	}
+	
+	/**
+	 * Sets whether or not the PhysicsObject's movement is swept each step, so it can't pass through thin PhysicsObjects when moving quickly
+	 * Sweeping costs a broadphase query per step, so it should be saved for small or fast PhysicsObjects
+	 * @param continuous Whether or not to use continuous collision detection
+	 */
+	public void SetContinuousCollision(boolean continuous) { m_continuous = continuous; }
+	
+	/**
+	 * @return Whether or not the PhysicsObject's movement is swept each step
+	 */
+	public boolean UsesContinuousCollision() { return m_continuous; }
+	
+	/**
+	 * Wakes the PhysicsObject, along with everything resting against it, if it has been put to sleep
+	 */
+	public void WakeUp()
+	{
+		if (m_slot >= 0)
+			m_physicsModel.WakeBody(m_slot);
+	}
+	
+	/**
+	 * @return Whether or not the PhysicsObject is being simulated, rather than sleeping because it came to rest
+	 */
+	public boolean IsAwake() { return m_slot < 0 || m_physicsModel.m_awake[m_slot]; }
+	
+	/**
+	 * @return Whether or not the PhysicsObject is frozen because it's outside of every activation region
+	 */
+	public boolean IsDormant() { return m_slot >= 0 && m_physicsModel.m_dormant[m_slot]; }
+	
+	/**
+	 * @return Handle given out when the PhysicsObject was registered, or PhysicsModel.INVALID_HANDLE if it isn't registered
+	 */
+	public int GetHandle() { return m_handle; }
+	
 	/**
 	 * @return Way the PhysicsObject interacts with other PhysicsObjects
 	 */
@@ -9,6 +9,15 @@ public final class Ray
 {	
 	double m_originX, m_originY, m_headingX, m_headingY;
 	
+	/**
+	 * Creates a ray for LOS checks, starting at (0, 0) and pointing along the X axis
+	 * Meant to be kept around and aimed with Set, rather than creating a new Ray for every check
+	 */
+	public Ray()
+	{
+		m_headingX = 1.0;
+	}
+	
 	/**
 	 * Creates a ray for LOS checks
 	 * @param x X position of the origin of the ray
@@ -17,7 +26,19 @@ public final class Ray
 	 * @param headingY
 	 */
 	public Ray(double x, double y, double headingX, double headingY)
-	{		
+	{
+		Set(x, y, headingX, headingY);
+	}
+	
+	/**
+	 * Moves and re-aims the ray
+	 * @param x X position of the origin of the ray
+	 * @param y Y position of the origin of the ray
+	 * @param headingX X component of the direction of the ray; needn't be normalized
+	 * @param headingY Y component of the direction of the ray; needn't be normalized
+	 */
+	public void Set(double x, double y, double headingX, double headingY)
+	{
 		m_originX = x;
 		m_originY = y;
 		
@@ -32,6 +53,26 @@ public final class Ray
 		m_headingY = headingY / divisor;
 	}
 	
+	/**
+	 * @return X position of the origin of the ray
+	 */
+	public double GetOriginX() { return m_originX; }
+	
+	/**
+	 * @return Y position of the origin of the ray
+	 */
+	public double GetOriginY() { return m_originY; }
+	
+	/**
+	 * @return X component of the normalized direction of the ray
+	 */
+	public double GetHeadingX() { return m_headingX; }
+	
+	/**
+	 * @return Y component of the normalized direction of the ray
+	 */
+	public double GetHeadingY() { return m_headingY; }
+	
 	/**
 	 * @param circle Circle to check intersection against
 	 * @return Whether or not the ray intersects with the Circle
@@ -100,6 +141,17 @@ public final class Ray
 	 */
 	public boolean Intersects(CollisionBounds other)
 	{
+		if (other.m_boundsType == BoundsType.Compound)
+		{
+			if (!Intersects(other.m_rect))
+				return false;
+			for (int i = 0; i < other.m_children.length; i++)
+			{
+				if (Intersects(other.m_children[i]))
+					return true;
+			}
+			return false;
+		}
 		if (other.m_boundsType == BoundsType.Circle)
 			return Intersects(other.m_circle);
 		else
@@ -135,46 +187,55 @@ public final class Ray
 	 * @return Distance if the two intersect, and Double.MAX_VALUE otherwise
 	 */
 	public double DistanceTo(Rectangle other)
+	{
+		return DistanceTo(other.m_x, other.m_y, other.m_right, other.m_bottom);
+	}
+	
+	/**
+	 * Calculates the distance from the ray's origin to the edges of an axis-aligned box
+	 * @return Distance if the two intersect, and Double.MAX_VALUE otherwise
+	 */
+	double DistanceTo(double left, double top, double right, double bottom)
 	{
 		double dist = 0.0;
 		double maxDist = Double.MAX_VALUE;
 		
-		if (Math.abs(m_headingX) < PhysicsModel.EPSILON && (m_originX < other.m_x || m_originX > other.m_right))
+		if (Math.abs(m_headingX) < PhysicsModel.EPSILON && (m_originX < left || m_originX > right))
 		{
 			return Double.MAX_VALUE;
 		}
 		else 
 		{
-			double left = (other.m_x - m_originX) / m_headingX;
-			double right = (other.m_right - m_originX) / m_headingX;
-			if (left > right)
+			double near = (left - m_originX) / m_headingX;
+			double far = (right - m_originX) / m_headingX;
+			if (near > far)
 			{
-				double cache = left;
-				left = right;
-				right = cache;
+				double cache = near;
+				near = far;
+				far = cache;
 			}
-			dist = left > dist ? left : dist;
-			maxDist = right < maxDist ? right : maxDist;
+			dist = near > dist ? near : dist;
+			maxDist = far < maxDist ? far : maxDist;
 			if (dist > maxDist)
 				return Double.MAX_VALUE;
 		}
 		
-		if (Math.abs(m_headingY) < PhysicsModel.EPSILON && (m_originY < other.m_y || m_originY > other.m_bottom))
+		if (Math.abs(m_headingY) < PhysicsModel.EPSILON && (m_originY < top || m_originY > bottom))
 		{
 			return Double.MAX_VALUE;
 		}
 		else 
 		{
-			double top = (other.m_y - m_originY) / m_headingY;
-			double bottom = (other.m_bottom - m_originY) / m_headingY;
-			if (top > bottom)
+			double near = (top - m_originY) / m_headingY;
+			double far = (bottom - m_originY) / m_headingY;
+			if (near > far)
 			{
-				double cache = top;
-				top = bottom;
-				bottom = cache;
+				double cache = near;
+				near = far;
+				far = cache;
 			}
-			dist = top > dist ? top : dist;
-			maxDist = bottom < maxDist ? bottom : maxDist;
+			dist = near > dist ? near : dist;
+			maxDist = far < maxDist ? far : maxDist;
 			if (dist > maxDist)
 				return Double.MAX_VALUE;
 		}
@@ -182,6 +243,40 @@ public final class Ray
 		return dist;
 	}
 
+	/**
+	 * Calculates the distance from the ray's origin to a Segment
+	 * @param segment Segment to check against
+	 * @return Distance if the two intersect, and Double.MAX_VALUE otherwise
+	 */
+	public double DistanceTo(Segment segment)
+	{
+		//solve origin + heading * distance = start + (end - start) * fraction
+		double edgeX = segment.m_endX - segment.m_startX, edgeY = segment.m_endY - segment.m_startY;
+		double denominator = m_headingX * edgeY - m_headingY * edgeX;
+		if (Math.abs(denominator) < PhysicsModel.EPSILON)//parallel
+			return Double.MAX_VALUE;
+
+		double offsetX = segment.m_startX - m_originX, offsetY = segment.m_startY - m_originY;
+		double dist = (offsetX * edgeY - offsetY * edgeX) / denominator, fraction = (offsetX * m_headingY - offsetY * m_headingX) / denominator;
+		return dist >= 0.0 && fraction >= 0.0 && fraction <= 1.0 ? dist : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Calculates the distance from the ray's origin to the surface of a HalfPlane
+	 * @param plane HalfPlane to check against
+	 * @return Distance if the two intersect, 0 if the origin is behind the surface, and Double.MAX_VALUE otherwise
+	 */
+	public double DistanceTo(HalfPlane plane)
+	{
+		double dist = plane.DistanceTo(m_originX, m_originY);
+		if (dist <= 0.0)
+			return 0.0;
+
+		double approach = -(plane.m_normalX * m_headingX + plane.m_normalY * m_headingY);
+		return approach > 0.0 ? dist / approach : Double.MAX_VALUE;
+	}
+
+
 	/**
 	 * Calculates the distance between the origin of the ray and the exterior of the CollisionBounds
 	 * @param other CollisionBounds to check against
@@ -189,6 +284,19 @@ public final class Ray
 	 */
 	public double DistanceTo(CollisionBounds other)
 	{
+		if (other.m_boundsType == BoundsType.Compound)
+		{
+			//a ray that misses the enclosing box misses every shape in it
+			if (DistanceTo(other.m_rect) == Double.MAX_VALUE)
+				return Double.MAX_VALUE;
+			double nearest = Double.MAX_VALUE;
+			for (int i = 0; i < other.m_children.length; i++)
+			{
+				double dist = DistanceTo(other.m_children[i]);
+				nearest = dist < nearest ? dist : nearest;
+			}
+			return nearest;
+		}
 		if (other.m_boundsType == BoundsType.Circle)
 			return DistanceTo(other.m_circle);
 		else
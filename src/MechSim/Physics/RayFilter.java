@@ -0,0 +1,15 @@
+package MechSim.Physics;
+
+/**
+ * RayFilter that decides which PhysicsObjects a ray cast can hit
+ * @author Gurwinder Gulati
+ *
+ */
+public interface RayFilter
+{
+	/**
+	 * @param obj PhysicsObject the ray may hit
+	 * @return Whether or not the ray can hit the PhysicsObject, rather than passing through it
+	 */
+	public boolean Accepts(PhysicsObject obj);
+}
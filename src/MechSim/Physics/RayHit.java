@@ -0,0 +1,64 @@
+package MechSim.Physics;
+
+/**
+ * Result of a ray cast, meant to be kept around and filled in by every cast rather than created for each one
+ * @author Gurwinder Gulati
+ *
+ */
+public final class RayHit
+{
+	PhysicsObject m_object;
+	double m_distance;
+	double m_pointX, m_pointY;
+	
+	/**
+	 * Creates an empty result, which holds nothing until a ray cast fills it in
+	 */
+	public RayHit()
+	{
+		Clear();
+	}
+	
+	/**
+	 * Empties the result, as though the ray hit nothing
+	 */
+	public void Clear()
+	{
+		m_object = null;
+		m_distance = Double.MAX_VALUE;
+		m_pointX = m_pointY = 0.0;
+	}
+	
+	void Set(Ray ray, PhysicsObject obj, double distance)
+	{
+		m_object = obj;
+		m_distance = distance;
+		m_pointX = ray.m_originX + ray.m_headingX * distance;
+		m_pointY = ray.m_originY + ray.m_headingY * distance;
+	}
+	
+	/**
+	 * @return Whether or not the ray hit anything
+	 */
+	public boolean IsHit() { return m_object != null; }
+	
+	/**
+	 * @return Nearest PhysicsObject the ray hit, or null if it hit nothing
+	 */
+	public PhysicsObject GetObject() { return m_object; }
+	
+	/**
+	 * @return Distance from the origin of the ray to where it hit, or Double.MAX_VALUE if it hit nothing
+	 */
+	public double GetDistance() { return m_distance; }
+	
+	/**
+	 * @return X position of where the ray hit
+	 */
+	public double GetPointX() { return m_pointX; }
+	
+	/**
+	 * @return Y position of where the ray hit
+	 */
+	public double GetPointY() { return m_pointY; }
+}
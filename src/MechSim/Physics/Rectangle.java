@@ -52,6 +52,67 @@ public final class Rectangle
 		return !(m_x > other.m_right || m_right < other.m_x || m_y > other.m_bottom || m_bottom < other.m_y);
 	}
 	
+	/**
+	 * Finds when a moving Rectangle first touches a stationary Circle
+	 * @param dX Distance this Rectangle moves in the X dimension
+	 * @param dY Distance this Rectangle moves in the Y dimension
+	 * @param other Circle to sweep against
+	 * @return Fraction of the movement completed when the two first touch, 0.0 if they already touch, or Double.POSITIVE_INFINITY if they never do
+	 */
+	public double TimeOfImpact(double dX, double dY, Circle other)
+	{
+		//only the relative movement matters, so sweep the circle towards the rectangle instead
+		return other.TimeOfImpact(-dX, -dY, this);
+	}
+	
+	/**
+	 * Finds when a moving Rectangle first touches a stationary Rectangle
+	 * @param dX Distance this Rectangle moves in the X dimension
+	 * @param dY Distance this Rectangle moves in the Y dimension
+	 * @param other Rectangle to sweep against
+	 * @return Fraction of the movement completed when the two first touch, 0.0 if they already touch, or Double.POSITIVE_INFINITY if they never do
+	 */
+	public double TimeOfImpact(double dX, double dY, Rectangle other)
+	{
+		//sweep the upper left corner against the other rectangle grown by this one's size
+		return SweepTime(m_x, m_y, dX, dY, other.m_x - m_width, other.m_y - m_height, other.m_right, other.m_bottom);
+	}
+	
+	/**
+	 * Sweeps a point against an axis-aligned box
+	 * @return Fraction of the movement completed when the point enters the box, 0.0 if it starts inside, or Double.POSITIVE_INFINITY if it never does
+	 */
+	static double SweepTime(double x, double y, double dX, double dY, double left, double top, double right, double bottom)
+	{
+		//clip the movement against the pair of edges in each dimension
+		double enter = 0.0, exit = 1.0;
+		if (dX == 0.0)
+		{
+			if (x < left || x > right)
+				return Double.POSITIVE_INFINITY;
+		}
+		else
+		{
+			double inverse = 1.0 / dX;
+			double near = ((dX > 0.0 ? left : right) - x) * inverse, far = ((dX > 0.0 ? right : left) - x) * inverse;
+			enter = near > enter ? near : enter;
+			exit = far < exit ? far : exit;
+		}
+		if (dY == 0.0)
+		{
+			if (y < top || y > bottom)
+				return Double.POSITIVE_INFINITY;
+		}
+		else
+		{
+			double inverse = 1.0 / dY;
+			double near = ((dY > 0.0 ? top : bottom) - y) * inverse, far = ((dY > 0.0 ? bottom : top) - y) * inverse;
+			enter = near > enter ? near : enter;
+			exit = far < exit ? far : exit;
+		}
+		return enter <= exit ? enter : Double.POSITIVE_INFINITY;
+	}
+	
 	void Nudge(Circle other)
 	{
 		//clamp the circle's center to rectangle bounds to find the point in the circle nearest to the circle
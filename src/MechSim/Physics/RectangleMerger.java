@@ -0,0 +1,112 @@
+package MechSim.Physics;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Greedily merges rectangular PhysicsObjects that share a whole edge, or overlap along one, into larger rectangles
+ * Rows of touching rectangles are joined first, then columns of the resulting strips, over and over until nothing else lines up
+ * @author Gurwinder Gulati
+ *
+ */
+final class RectangleMerger
+{
+	//orders rectangles along rows, so neighbours in the same row end up next to each other
+	static final Comparator<PhysicsObject> BY_ROW = new Comparator<PhysicsObject>()
+	{
+		@Override
+		public int compare(PhysicsObject a, PhysicsObject b)
+		{
+			Rectangle alpha = a.m_bounds.m_rect, beta = b.m_bounds.m_rect;
+			int result = Double.compare(alpha.m_y, beta.m_y);
+			if (result == 0)
+				result = Double.compare(alpha.m_height, beta.m_height);
+			return result != 0 ? result : Double.compare(alpha.m_x, beta.m_x);
+		}
+	};
+
+	//orders rectangles along columns, so neighbours in the same column end up next to each other
+	static final Comparator<PhysicsObject> BY_COLUMN = new Comparator<PhysicsObject>()
+	{
+		@Override
+		public int compare(PhysicsObject a, PhysicsObject b)
+		{
+			Rectangle alpha = a.m_bounds.m_rect, beta = b.m_bounds.m_rect;
+			int result = Double.compare(alpha.m_x, beta.m_x);
+			if (result == 0)
+				result = Double.compare(alpha.m_width, beta.m_width);
+			return result != 0 ? result : Double.compare(alpha.m_y, beta.m_y);
+		}
+	};
+
+	private RectangleMerger()
+	{
+	}
+
+	/**
+	 * Merges as many of the rectangles as possible, growing the ones that are kept to cover the ones that aren't
+	 * @param objs Static PhysicsObjects with rectangular bounds; left holding only the ones that were kept
+	 * @param merged List the PhysicsObjects that were merged into others are appended to
+	 */
+	static void Merge(List<PhysicsObject> objs, List<PhysicsObject> merged)
+	{
+		int count;
+		do
+		{
+			count = objs.size();
+			MergeRuns(objs, merged, true);
+			MergeRuns(objs, merged, false);
+		} while (objs.size() < count);
+	}
+
+	/**
+	 * Merges every run of rectangles lined up along rows or along columns
+	 */
+	private static void MergeRuns(List<PhysicsObject> objs, List<PhysicsObject> merged, boolean alongRows)
+	{
+		if (objs.size() < 2)
+			return;
+		Collections.sort(objs, alongRows ? BY_ROW : BY_COLUMN);
+
+		int write = 0;
+		PhysicsObject current = objs.get(0);
+		for (int read = 1; read < objs.size(); read++)
+		{
+			PhysicsObject next = objs.get(read);
+			if (CanMerge(current, next, alongRows))
+			{
+				//the run is sorted by where each rectangle starts, so only its far end can grow
+				Rectangle rect = current.m_bounds.m_rect, other = next.m_bounds.m_rect;
+				if (alongRows && other.m_right > rect.m_right)
+					rect.SetWidth(other.m_right - rect.m_x);
+				else if (!alongRows && other.m_bottom > rect.m_bottom)
+					rect.SetHeight(other.m_bottom - rect.m_y);
+				merged.add(next);
+			}
+			else
+			{
+				objs.set(write++, current);
+				current = next;
+			}
+		}
+		objs.set(write++, current);
+		objs.subList(write, objs.size()).clear();
+	}
+
+	/**
+	 * @return Whether or not the second rectangle lines up with the first along a row or column, and touches or overlaps it
+	 */
+	private static boolean CanMerge(PhysicsObject a, PhysicsObject b, boolean alongRows)
+	{
+		//anything that would tell the two apart, other than where they are, keeps them separate
+		if (a.m_category != b.m_category || a.m_mask != b.m_mask || a.m_render != b.m_render || !Objects.equals(a.m_color, b.m_color))
+			return false;
+
+		Rectangle alpha = a.m_bounds.m_rect, beta = b.m_bounds.m_rect;
+		if (alongRows)
+			return alpha.m_y == beta.m_y && alpha.m_height == beta.m_height && beta.m_x <= alpha.m_right + PhysicsModel.EPSILON;
+		return alpha.m_x == beta.m_x && alpha.m_width == beta.m_width && beta.m_y <= alpha.m_bottom + PhysicsModel.EPSILON;
+	}
+}
@@ -0,0 +1,45 @@
+package MechSim.Physics;
+
+/**
+ * Fourth order Runge-Kutta over position and velocity, with friction treated as a drag proportional to velocity
+ * Acceleration is constant over a step and drag is linear, so the four stages collapse into the same four coefficients for every body,
+ * which are worked out once per step and leave a loop no more expensive than the simpler schemes
+ * @author Gurwinder Gulati
+ *
+ */
+final class RungeKuttaIntegrator implements Integrator
+{
+	//RK4 stops slowing bodies down any further past this much drag in one step, and eventually blows up, so heavier friction is capped here
+	static final double MAX_DRAG = 1.596;
+	
+	@Override
+	public void Integrate(PhysicsModel physics, double timeDelta, double friction)
+	{
+		//keeping the fraction f of velocity over a step is a drag of z = -ln(f) per step
+		double z = friction > 0.0 ? -Math.log(friction) : MAX_DRAG;
+		z = z < MAX_DRAG ? z : MAX_DRAG;
+		double zSquared = z * z, zCubed = zSquared * z;
+		
+		//one RK4 step of x' = v, v' = a - cv, multiplied out
+		double keptVelocity = 1.0 - z + zSquared / 2.0 - zCubed / 6.0 + zSquared * zSquared / 24.0;
+		double velocityStep = timeDelta * (1.0 - z / 2.0 + zSquared / 6.0 - zCubed / 24.0);//distance per unit of old velocity, and velocity per unit of acceleration
+		double accelerationStep = timeDelta * timeDelta * (0.5 - z / 6.0 + zSquared / 24.0);//distance per unit of acceleration
+		
+		double[] posX = physics.m_posX, posY = physics.m_posY;
+		double[] velX = physics.m_velX, velY = physics.m_velY;
+		double[] accX = physics.m_accX, accY = physics.m_accY;
+		double[] dispX = physics.m_dispX, dispY = physics.m_dispY;
+		int count = physics.m_bodyCount;
+		
+		for (int i = 0; i < count; i++)
+		{
+			double dX = velX[i] * velocityStep + accX[i] * accelerationStep, dY = velY[i] * velocityStep + accY[i] * accelerationStep;
+			dispX[i] = dX;
+			dispY[i] = dY;
+			posX[i] += dX;
+			posY[i] += dY;
+			velX[i] = velX[i] * keptVelocity + accX[i] * velocityStep;
+			velY[i] = velY[i] * keptVelocity + accY[i] * velocityStep;
+		}
+	}
+}
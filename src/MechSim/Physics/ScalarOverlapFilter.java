@@ -0,0 +1,37 @@
+package MechSim.Physics;
+
+/**
+ * Filters candidate pairs one at a time
+ * @author Gurwinder Gulati
+ *
+ */
+final class ScalarOverlapFilter implements OverlapFilter
+{
+	@Override
+	public void Filter(PhysicsModel physics, int[] slotsA, int[] slotsB, byte[] results, int start, int end)
+	{
+		double[] posX = physics.m_posX, posY = physics.m_posY;
+		double[] offsetX = physics.m_offsetX, offsetY = physics.m_offsetY;
+		double[] extentX = physics.m_extentX, extentY = physics.m_extentY;
+		double[] radius = physics.m_radius;
+		for (int i = start; i < end; i++)
+		{
+			if (results[i] == PhysicsModel.PAIR_MISS)
+				continue;
+			
+			//apart if their boxes don't touch, or if they're both round and their circles don't touch
+			int a = slotsA[i], b = slotsB[i];
+			double dX = (posX[a] + offsetX[a]) - (posX[b] + offsetX[b]), dY = (posY[a] + offsetY[a]) - (posY[b] + offsetY[b]);
+			double reach = radius[a] + radius[b] + PhysicsModel.EPSILON;
+			if ((dX < 0.0 ? -dX : dX) > extentX[a] + extentX[b] + PhysicsModel.EPSILON || (dY < 0.0 ? -dY : dY) > extentY[a] + extentY[b] + PhysicsModel.EPSILON
+					|| dX * dX + dY * dY > reach * reach)
+				results[i] = PhysicsModel.PAIR_MISS;
+		}
+	}
+	
+	@Override
+	public void Reserve(int capacity)
+	{
+		//filters in place, so there's nothing to reserve
+	}
+}
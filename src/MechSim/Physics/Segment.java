@@ -0,0 +1,319 @@
+package MechSim.Physics;
+
+import java.awt.Graphics2D;
+
+/**
+ * A wall with no thickness between two points, which can be approached from either side, such as one side of a corridor
+ * Unlike a thin Rectangle, it can point in any direction and doesn't take a PhysicsObject of its own
+ * @author Gurwinder Gulati
+ *
+ */
+public final class Segment extends StaticCollider
+{
+	double m_startX, m_startY, m_endX, m_endY;
+	double m_directionX, m_directionY;//unit direction from the start to the end
+	double m_length;
+	Contact m_contact;
+
+	/**
+	 * Creates a wall between two points
+	 * @param physics PhysicsModel the wall will be added to
+	 * @param startX X position of one end of the wall
+	 * @param startY Y position of one end of the wall
+	 * @param endX X position of the other end of the wall
+	 * @param endY Y position of the other end of the wall
+	 */
+	public Segment(PhysicsModel physics, double startX, double startY, double endX, double endY)
+	{
+		super(physics);
+		m_startX = startX;
+		m_startY = startY;
+		m_endX = endX;
+		m_endY = endY;
+		m_length = Math.sqrt((endX - startX) * (endX - startX) + (endY - startY) * (endY - startY));
+		m_directionX = m_length > 0.0 ? (endX - startX) / m_length : 1.0;
+		m_directionY = m_length > 0.0 ? (endY - startY) / m_length : 0.0;
+		m_contact = new Contact();
+	}
+
+	/**
+	 * @return X position of the start of the wall
+	 */
+	public double GetStartX() { return m_startX; }
+
+	/**
+	 * @return Y position of the start of the wall
+	 */
+	public double GetStartY() { return m_startY; }
+
+	/**
+	 * @return X position of the end of the wall
+	 */
+	public double GetEndX() { return m_endX; }
+
+	/**
+	 * @return Y position of the end of the wall
+	 */
+	public double GetEndY() { return m_endY; }
+
+	/**
+	 * @return Length of the wall
+	 */
+	public double GetLength() { return m_length; }
+
+	@Override
+	boolean Collide(PhysicsModel physics, int slot)
+	{
+		if (physics.m_shape[slot] != PhysicsModel.SHAPE_COMPOUND)
+		{
+			return CollideShape(physics, slot, physics.m_posX[slot] + physics.m_offsetX[slot], physics.m_posY[slot] + physics.m_offsetY[slot],
+					physics.m_radius[slot], physics.m_extentX[slot], physics.m_extentY[slot]);
+		}
+
+		//each of a compound's shapes is pushed out on its own, moving the rest of the compound along with it
+		CollisionBounds bounds = physics.m_bodyBounds[slot];
+		boolean touched = false;
+		for (int i = 0; i < bounds.GetPartCount(); i++)
+		{
+			CollisionBounds part = bounds.GetPart(i);
+			double extentX = (part.GetRight() - part.GetLeft()) * 0.5, extentY = (part.GetBottom() - part.GetTop()) * 0.5;
+			double radius = part.m_boundsType == BoundsType.Circle ? part.m_circle.Radius : Double.POSITIVE_INFINITY;
+			if (CollideShape(physics, slot, part.GetLeft() + extentX, part.GetTop() + extentY, radius, extentX, extentY))
+				touched = true;
+		}
+		return touched;
+	}
+
+	/**
+	 * Pushes one circle or rectangle of a body out of the wall
+	 * @param radius Radius of a circle, or Double.POSITIVE_INFINITY for a rectangle
+	 * @return Whether or not the shape touched the wall
+	 */
+	private boolean CollideShape(PhysicsModel physics, int slot, double centerX, double centerY, double radius, double extentX, double extentY)
+	{
+		boolean circle = radius != Double.POSITIVE_INFINITY;
+		double reach = circle ? radius
+				: (m_directionY < 0.0 ? -m_directionY : m_directionY) * extentX + (m_directionX < 0.0 ? -m_directionX : m_directionX) * extentY;
+		boolean touching = FindCrossingContact(centerX, centerY, physics.m_dispX[slot], physics.m_dispY[slot], reach, m_contact)
+				|| (circle
+				? FindCircleContact(centerX, centerY, radius, physics.m_velX[slot], physics.m_velY[slot], m_contact)
+				: FindRectangleContact(centerX, centerY, extentX, extentY, m_contact));
+		if (!touching)
+			return false;
+		physics.ResolveStaticContact(slot, m_contact);
+		return true;
+	}
+
+	/**
+	 * Finds how far a body whose center passed through the wall during this step has to go to get back to the side it came from
+	 * Without this, a body that moves too little to be swept could cross the wall and be pushed out of it on the wrong side
+	 * @return Whether or not the center passed through the wall
+	 */
+	private boolean FindCrossingContact(double centerX, double centerY, double dX, double dY, double reach, Contact contact)
+	{
+		double normalX = -m_directionY, normalY = m_directionX;
+		double gap = (centerX - m_startX) * normalX + (centerY - m_startY) * normalY, previousGap = gap - (dX * normalX + dY * normalY);
+		if (gap * previousGap >= 0.0)
+			return false;
+
+		//a body that started out mostly overlapping the wall isn't clearly on either side of it, so it's left to the regular check
+		if ((previousGap < 0.0 ? -previousGap : previousGap) < reach * 0.5)
+			return false;
+
+		//only counts if the center crossed the line between the ends of the wall
+		double remaining = gap / (gap - previousGap);
+		double along = (centerX - dX * remaining - m_startX) * m_directionX + (centerY - dY * remaining - m_startY) * m_directionY;
+		if (along < 0.0 || along > m_length)
+			return false;
+
+		double sign = gap < 0.0 ? -1.0 : 1.0;
+		contact.m_normalX = normalX * sign;
+		contact.m_normalY = normalY * sign;
+		contact.m_depth = gap * sign + reach;
+		return true;
+	}
+
+	/**
+	 * Finds how a circle overlaps the wall, from the point on the wall nearest its center
+	 * @return Whether or not they overlap
+	 */
+	private boolean FindCircleContact(double centerX, double centerY, double radius, double velocityX, double velocityY, Contact contact)
+	{
+		double along = (centerX - m_startX) * m_directionX + (centerY - m_startY) * m_directionY;
+		along = along < 0.0 ? 0.0 : along > m_length ? m_length : along;
+		double dX = m_startX + m_directionX * along - centerX, dY = m_startY + m_directionY * along - centerY;
+		double distanceSquared = dX * dX + dY * dY;
+		if (distanceSquared > radius * radius)
+			return false;
+
+		double distance = Math.sqrt(distanceSquared);
+		if (distance > 0.0)
+		{
+			contact.m_normalX = dX / distance;
+			contact.m_normalY = dY / distance;
+		}
+		else
+		{
+			//the center is right on the wall, so push it back the way it came
+			double normalX = -m_directionY, normalY = m_directionX;
+			double sign = normalX * velocityX + normalY * velocityY < 0.0 ? -1.0 : 1.0;
+			contact.m_normalX = normalX * sign;
+			contact.m_normalY = normalY * sign;
+		}
+		contact.m_depth = radius - distance;
+		return true;
+	}
+
+	/**
+	 * Finds how a rectangle overlaps the wall, along whichever of the two box axes and the wall's normal they overlap the least
+	 * @return Whether or not they overlap
+	 */
+	private boolean FindRectangleContact(double centerX, double centerY, double extentX, double extentY, Contact contact)
+	{
+		double middleX = (m_startX + m_endX) * 0.5, middleY = (m_startY + m_endY) * 0.5;
+		double halfX = (m_endX - m_startX) * 0.5, halfY = (m_endY - m_startY) * 0.5;
+
+		//along each axis, the shapes overlap by the sum of their reaches less the distance between their middles
+		double dX = middleX - centerX, dY = middleY - centerY;
+		double overlapX = extentX + (halfX < 0.0 ? -halfX : halfX) - (dX < 0.0 ? -dX : dX);
+		double overlapY = extentY + (halfY < 0.0 ? -halfY : halfY) - (dY < 0.0 ? -dY : dY);
+		double normalX = -m_directionY, normalY = m_directionX;
+		double dN = normalX * dX + normalY * dY;
+		double overlapN = (normalX < 0.0 ? -normalX : normalX) * extentX + (normalY < 0.0 ? -normalY : normalY) * extentY - (dN < 0.0 ? -dN : dN);
+		if (overlapX < 0.0 || overlapY < 0.0 || overlapN < 0.0)
+			return false;
+
+		if (overlapN <= overlapX && overlapN <= overlapY)
+		{
+			double sign = dN < 0.0 ? -1.0 : 1.0;
+			contact.m_normalX = normalX * sign;
+			contact.m_normalY = normalY * sign;
+			contact.m_depth = overlapN;
+		}
+		else if (overlapX <= overlapY)
+		{
+			contact.m_normalX = dX < 0.0 ? -1.0 : 1.0;
+			contact.m_normalY = 0.0;
+			contact.m_depth = overlapX;
+		}
+		else
+		{
+			contact.m_normalX = 0.0;
+			contact.m_normalY = dY < 0.0 ? -1.0 : 1.0;
+			contact.m_depth = overlapY;
+		}
+		return true;
+	}
+
+	@Override
+	double TimeOfImpact(CollisionBounds bounds, double dX, double dY)
+	{
+		if (bounds.m_boundsType == BoundsType.Compound)
+			return CompoundTimeOfImpact(bounds, dX, dY);
+		double extentX = (bounds.GetRight() - bounds.GetLeft()) * 0.5, extentY = (bounds.GetBottom() - bounds.GetTop()) * 0.5;
+		double centerX = bounds.GetLeft() + extentX, centerY = bounds.GetTop() + extentY;
+		if (bounds.m_boundsType == BoundsType.Circle)
+			return CircleTimeOfImpact(centerX, centerY, bounds.m_circle.Radius, dX, dY);
+
+		//both shapes are convex, so they first touch when the last of their separating axes stops separating them
+		double normalX = -m_directionY, normalY = m_directionX;
+		double halfX = (m_endX - m_startX) * 0.5, halfY = (m_endY - m_startY) * 0.5;
+		double reachX = extentX + (halfX < 0.0 ? -halfX : halfX), reachY = extentY + (halfY < 0.0 ? -halfY : halfY),
+				reachN = (normalX < 0.0 ? -normalX : normalX) * extentX + (normalY < 0.0 ? -normalY : normalY) * extentY;
+		double offsetX = (m_startX + m_endX) * 0.5 - centerX, offsetY = (m_startY + m_endY) * 0.5 - centerY;
+		double enter = Double.NEGATIVE_INFINITY, exit = Double.POSITIVE_INFINITY;
+		for (int axis = 0; axis < 3; axis++)
+		{
+			double axisX = axis == 0 ? 1.0 : axis == 1 ? 0.0 : normalX, axisY = axis == 0 ? 0.0 : axis == 1 ? 1.0 : normalY;
+			double reach = axis == 0 ? reachX : axis == 1 ? reachY : reachN;
+			double gap = axisX * offsetX + axisY * offsetY, speed = axisX * dX + axisY * dY;
+			if (speed == 0.0)
+			{
+				if (gap > reach || gap < -reach)
+					return Double.POSITIVE_INFINITY;
+				continue;
+			}
+			double first = (gap - reach) / speed, last = (gap + reach) / speed;
+			if (first > last)
+			{
+				double cache = first;
+				first = last;
+				last = cache;
+			}
+			enter = first > enter ? first : enter;
+			exit = last < exit ? last : exit;
+		}
+		if (enter > 0.0 && enter <= exit)
+			return enter;
+		return enter <= 0.0 && exit >= 0.0 ? CrossingTime(centerX, centerY, dX, dY) : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Finds when a shape that already touches the wall would be halfway to crossing it
+	 * The wall has no thickness, so a shape that starts out touching it could otherwise pass right through before being pushed back out the wrong side
+	 * @return Fraction of the movement completed by then, or Double.POSITIVE_INFINITY if the shape isn't heading through the wall
+	 */
+	private double CrossingTime(double centerX, double centerY, double dX, double dY)
+	{
+		double offsetX = centerX - m_startX, offsetY = centerY - m_startY;
+		double along = offsetX * m_directionX + offsetY * m_directionY;
+		double gap = offsetY * m_directionX - offsetX * m_directionY, speed = dY * m_directionX - dX * m_directionY;
+		if (along < 0.0 || along > m_length || gap * speed >= 0.0)
+			return Double.POSITIVE_INFINITY;
+		return -gap / (2.0 * speed);
+	}
+
+	/**
+	 * Finds when a moving circle first touches either the side of the wall or one of its ends
+	 */
+	private double CircleTimeOfImpact(double centerX, double centerY, double radius, double dX, double dY)
+	{
+		double first = Double.POSITIVE_INFINITY;
+
+		//the side of the wall, which the circle touches once its center is a radius away from the line
+		double normalX = -m_directionY, normalY = m_directionX;
+		double gap = (centerX - m_startX) * normalX + (centerY - m_startY) * normalY, speed = dX * normalX + dY * normalY;
+		double side = gap < 0.0 ? -radius : radius;
+		if ((gap < 0.0 ? -gap : gap) <= radius)
+			return CrossingTime(centerX, centerY, dX, dY);
+		if (speed != 0.0)
+		{
+			double time = (side - gap) / speed;
+			double along = (centerX + dX * time - m_startX) * m_directionX + (centerY + dY * time - m_startY) * m_directionY;
+			if (time > 0.0 && along >= 0.0 && along <= m_length)
+				first = time;
+		}
+
+		//the ends, which the circle touches once its center is a radius away from them
+		double time = PointTimeOfImpact(centerX - m_startX, centerY - m_startY, radius, dX, dY);
+		first = time < first ? time : first;
+		time = PointTimeOfImpact(centerX - m_endX, centerY - m_endY, radius, dX, dY);
+		return time < first ? time : first;
+	}
+
+	private static double PointTimeOfImpact(double offsetX, double offsetY, double radius, double dX, double dY)
+	{
+		//solve |offset + d * t| = radius for the earlier t
+		double a = dX * dX + dY * dY, b = offsetX * dX + offsetY * dY, c = offsetX * offsetX + offsetY * offsetY - radius * radius;
+		if (c <= 0.0 || b >= 0.0 || a == 0.0)
+			return Double.POSITIVE_INFINITY;//already touching, or not heading towards it
+		double det = b * b - a * c;
+		if (det < 0.0)
+			return Double.POSITIVE_INFINITY;
+		return (-b - Math.sqrt(det)) / a;
+	}
+
+	@Override
+	double CastRay(Ray ray, double maxDistance)
+	{
+		double distance = ray.DistanceTo(this);
+		return distance < maxDistance ? distance : Double.MAX_VALUE;
+	}
+
+	@Override
+	void RenderWireframe(Graphics2D g)
+	{
+		g.setColor(m_object.CollidedLastFrame() ? PhysicsObject.COLLIDING_COLOR : PhysicsObject.NOT_COLLIDING_COLOR);
+		g.drawLine((int)m_startX, (int)m_startY, (int)m_endX, (int)m_endY);
+	}
+}
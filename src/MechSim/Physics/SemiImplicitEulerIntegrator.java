@@ -0,0 +1,31 @@
+package MechSim.Physics;
+
+/**
+ * Updates each body's velocity first, then moves it by the new velocity
+ * @author Gurwinder Gulati
+ *
+ */
+final class SemiImplicitEulerIntegrator implements Integrator
+{
+	@Override
+	public void Integrate(PhysicsModel physics, double timeDelta, double friction)
+	{
+		double[] posX = physics.m_posX, posY = physics.m_posY;
+		double[] velX = physics.m_velX, velY = physics.m_velY;
+		double[] accX = physics.m_accX, accY = physics.m_accY;
+		double[] dispX = physics.m_dispX, dispY = physics.m_dispY;
+		int count = physics.m_bodyCount;
+		
+		for (int i = 0; i < count; i++)
+		{
+			double vX = velX[i] * friction + accX[i] * timeDelta, vY = velY[i] * friction + accY[i] * timeDelta;
+			velX[i] = vX;
+			velY[i] = vY;
+			double dX = vX * timeDelta, dY = vY * timeDelta;
+			dispX[i] = dX;
+			dispY[i] = dY;
+			posX[i] += dX;
+			posY[i] += dY;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package MechSim.Physics;
+
+import java.awt.Graphics2D;
+
+/**
+ * Static geometry that PhysicsObjects collide with, without each piece of it being a PhysicsObject of its own
+ * Meant for large, unchanging parts of the world such as the walls of a map, which would otherwise take a PhysicsObject, CollisionBounds and shape per piece
+ * @author Gurwinder Gulati
+ *
+ */
+public abstract class StaticCollider
+{
+	PhysicsObject m_object;//stands in for the collider wherever a PhysicsObject is expected, such as contact events and ray hits
+	PhysicsModel m_physicsModel;//PhysicsModel the collider has been added to, if any
+	
+	StaticCollider(PhysicsModel physics)
+	{
+		m_object = new PhysicsObject(physics, InteractionType.Static, 1.0, new Rectangle(0.0, 0.0, 0.0, 0.0));
+		m_object.m_collider = this;
+	}
+	
+	/**
+	 * Pushes a body out of every piece of geometry it overlaps, using PhysicsModel.ResolveStaticContact
+	 * @param physics PhysicsModel the body is registered with
+	 * @param slot Packed index of the body
+	 * @return Whether or not the body touched any of the geometry
+	 */
+	abstract boolean Collide(PhysicsModel physics, int slot);
+	
+	/**
+	 * Finds when a moving shape first touches the geometry
+	 * @param bounds Shape, at the start of its movement
+	 * @param dX Distance the shape moves in the X dimension
+	 * @param dY Distance the shape moves in the Y dimension
+	 * @return Fraction of the movement completed when the shape first touches something it didn't touch to begin with, or Double.POSITIVE_INFINITY if it never does
+	 */
+	abstract double TimeOfImpact(CollisionBounds bounds, double dX, double dY);
+	
+	/**
+	 * Finds when the first of the shapes making up a compound touches the geometry, for colliders that only handle simple shapes themselves
+	 * @return Fraction of the movement completed when the first shape touches something, or Double.POSITIVE_INFINITY if none ever do
+	 */
+	final double CompoundTimeOfImpact(CollisionBounds bounds, double dX, double dY)
+	{
+		double first = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < bounds.GetPartCount(); i++)
+		{
+			double time = TimeOfImpact(bounds.GetPart(i), dX, dY);
+			first = time < first ? time : first;
+		}
+		return first;
+	}
+	
+	/**
+	 * Finds the nearest piece of geometry along a ray
+	 * @param ray Ray to cast
+	 * @param maxDistance Distance beyond which hits are ignored
+	 * @return Distance from the origin of the ray to the nearest hit, or Double.MAX_VALUE if there isn't one closer than maxDistance
+	 */
+	abstract double CastRay(Ray ray, double maxDistance);
+	
+	/**
+	 * Draws the outline of the geometry
+	 * @param g Graphics2D used to draw
+	 */
+	abstract void RenderWireframe(Graphics2D g);
+	
+	/**
+	 * @return PhysicsObject that represents the collider in contact events and ray hits; its collision filter and listeners apply to the whole collider
+	 */
+	public PhysicsObject GetObject() { return m_object; }
+}
@@ -0,0 +1,248 @@
+package MechSim.Physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounding volume hierarchy over PhysicsObjects that don't move, built all at once and stored in flat arrays
+ * Nodes are laid out depth-first, so it can be searched front to back without a stack by skipping over subtrees that miss
+ * @author Gurwinder Gulati
+ *
+ */
+final class StaticIndex
+{
+	static final int LEAF_SIZE = 4;//most items kept in a single leaf
+	static final int INITIAL_CAPACITY = 16;
+
+	//items, reordered during building so each leaf's items are contiguous
+	PhysicsObject[] m_items;
+	double[] m_itemLeft, m_itemTop, m_itemRight, m_itemBottom;
+	int m_itemCount;
+
+	//nodes, in depth-first order, so a node's first child always directly follows it
+	double[] m_nodeLeft, m_nodeTop, m_nodeRight, m_nodeBottom;
+	int[] m_nodeStart, m_nodeItems;//range of items in a leaf; 0 items for a branch
+	int[] m_nodeSkip;//index of the first node after this node's subtree
+	int m_nodeCount;
+
+	/**
+	 * Creates an empty index
+	 */
+	StaticIndex()
+	{
+		m_items = new PhysicsObject[INITIAL_CAPACITY];
+		m_itemLeft = new double[INITIAL_CAPACITY];
+		m_itemTop = new double[INITIAL_CAPACITY];
+		m_itemRight = new double[INITIAL_CAPACITY];
+		m_itemBottom = new double[INITIAL_CAPACITY];
+		AllocateNodes(INITIAL_CAPACITY * 2);
+	}
+
+	/**
+	 * Removes every item from the index
+	 */
+	void Clear()
+	{
+		Arrays.fill(m_items, 0, m_itemCount, null);
+		m_itemCount = 0;
+		m_nodeCount = 0;
+	}
+
+	/**
+	 * Adds an item, which won't be found until the index is built again
+	 * @param obj PhysicsObject to add
+	 */
+	void Add(PhysicsObject obj)
+	{
+		if (m_itemCount == m_items.length)
+		{
+			int capacity = m_itemCount * 2;
+			m_items = Arrays.copyOf(m_items, capacity);
+			m_itemLeft = Arrays.copyOf(m_itemLeft, capacity);
+			m_itemTop = Arrays.copyOf(m_itemTop, capacity);
+			m_itemRight = Arrays.copyOf(m_itemRight, capacity);
+			m_itemBottom = Arrays.copyOf(m_itemBottom, capacity);
+		}
+		m_items[m_itemCount++] = obj;
+	}
+
+	/**
+	 * Builds the hierarchy over every item added since the last Clear
+	 */
+	void Build()
+	{
+		for (int i = 0; i < m_itemCount; i++)
+		{
+			CollisionBounds bounds = m_items[i].m_bounds;
+			m_itemLeft[i] = bounds.GetLeft();
+			m_itemTop[i] = bounds.GetTop();
+			m_itemRight[i] = bounds.GetRight();
+			m_itemBottom[i] = bounds.GetBottom();
+		}
+
+		//a tree with leaves of at least one item never has more than twice as many nodes as items
+		if (m_nodeLeft.length < m_itemCount * 2)
+			AllocateNodes(m_itemCount * 2);
+		m_nodeCount = 0;
+		if (m_itemCount > 0)
+			BuildNode(0, m_itemCount);
+	}
+
+	/**
+	 * Finds every item whose bounds overlap the given box
+	 * @param results List the items found are appended to
+	 */
+	void Query(double left, double top, double right, double bottom, List<PhysicsObject> results)
+	{
+		int node = 0;
+		while (node < m_nodeCount)
+		{
+			if (m_nodeLeft[node] > right || m_nodeRight[node] < left || m_nodeTop[node] > bottom || m_nodeBottom[node] < top)
+			{
+				node = m_nodeSkip[node];
+				continue;
+			}
+
+			int end = m_nodeStart[node] + m_nodeItems[node];
+			for (int i = m_nodeStart[node]; i < end; i++)
+			{
+				if (!(m_itemLeft[i] > right || m_itemRight[i] < left || m_itemTop[i] > bottom || m_itemBottom[i] < top))
+					results.add(m_items[i]);
+			}
+			node++;//into the first child of a branch, or past a leaf
+		}
+	}
+
+	/**
+	 * Pairs a PhysicsObject with every item whose bounds overlap its own
+	 * @param obj PhysicsObject to pair up
+	 * @param pairs List the pairs found are appended to
+	 */
+	void FindPairs(PhysicsObject obj, PairList pairs)
+	{
+		CollisionBounds bounds = obj.m_bounds;
+		double left = bounds.GetLeft(), top = bounds.GetTop(), right = bounds.GetRight(), bottom = bounds.GetBottom();
+		int node = 0;
+		while (node < m_nodeCount)
+		{
+			if (m_nodeLeft[node] > right || m_nodeRight[node] < left || m_nodeTop[node] > bottom || m_nodeBottom[node] < top)
+			{
+				node = m_nodeSkip[node];
+				continue;
+			}
+
+			int end = m_nodeStart[node] + m_nodeItems[node];
+			for (int i = m_nodeStart[node]; i < end; i++)
+			{
+				if (!(m_itemLeft[i] > right || m_itemRight[i] < left || m_itemTop[i] > bottom || m_itemBottom[i] < top))
+					pairs.Add(obj, m_items[i]);
+			}
+			node++;
+		}
+	}
+
+	private void BuildNode(int start, int end)
+	{
+		int node = m_nodeCount++;
+
+		//the node encloses all of its items, and finds the spread of their centers while it's at it
+		double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++)
+		{
+			left = m_itemLeft[i] < left ? m_itemLeft[i] : left;
+			top = m_itemTop[i] < top ? m_itemTop[i] : top;
+			right = m_itemRight[i] > right ? m_itemRight[i] : right;
+			bottom = m_itemBottom[i] > bottom ? m_itemBottom[i] : bottom;
+			double x = m_itemLeft[i] + m_itemRight[i], y = m_itemTop[i] + m_itemBottom[i];//twice the center, which sorts the same
+			minX = x < minX ? x : minX;
+			maxX = x > maxX ? x : maxX;
+			minY = y < minY ? y : minY;
+			maxY = y > maxY ? y : maxY;
+		}
+		m_nodeLeft[node] = left;
+		m_nodeTop[node] = top;
+		m_nodeRight[node] = right;
+		m_nodeBottom[node] = bottom;
+
+		if (end - start <= LEAF_SIZE)
+		{
+			m_nodeStart[node] = start;
+			m_nodeItems[node] = end - start;
+			m_nodeSkip[node] = m_nodeCount;
+			return;
+		}
+
+		//split at the median center along whichever axis the centers are most spread out on
+		int middle = (start + end) >>> 1;
+		Select(start, end - 1, middle, maxX - minX >= maxY - minY);
+		m_nodeStart[node] = start;
+		m_nodeItems[node] = 0;
+		BuildNode(start, middle);
+		BuildNode(middle, end);
+		m_nodeSkip[node] = m_nodeCount;
+	}
+
+	/**
+	 * Partially sorts items by center so the nth is in place, with no smaller centers after it and no larger ones before it
+	 */
+	private void Select(int low, int high, int nth, boolean alongX)
+	{
+		while (low < high)
+		{
+			double pivot = Center((low + high) >>> 1, alongX);
+			int i = low, j = high;
+			while (i <= j)
+			{
+				while (Center(i, alongX) < pivot)
+					i++;
+				while (Center(j, alongX) > pivot)
+					j--;
+				if (i <= j)
+					Swap(i++, j--);
+			}
+
+			if (nth <= j)
+				high = j;
+			else if (nth >= i)
+				low = i;
+			else
+				return;
+		}
+	}
+
+	private double Center(int item, boolean alongX)
+	{
+		return alongX ? m_itemLeft[item] + m_itemRight[item] : m_itemTop[item] + m_itemBottom[item];
+	}
+
+	private void Swap(int i, int j)
+	{
+		PhysicsObject obj = m_items[i];
+		m_items[i] = m_items[j];
+		m_items[j] = obj;
+		double cache = m_itemLeft[i];
+		m_itemLeft[i] = m_itemLeft[j];
+		m_itemLeft[j] = cache;
+		cache = m_itemTop[i];
+		m_itemTop[i] = m_itemTop[j];
+		m_itemTop[j] = cache;
+		cache = m_itemRight[i];
+		m_itemRight[i] = m_itemRight[j];
+		m_itemRight[j] = cache;
+		cache = m_itemBottom[i];
+		m_itemBottom[i] = m_itemBottom[j];
+		m_itemBottom[j] = cache;
+	}
+
+	private void AllocateNodes(int capacity)
+	{
+		m_nodeLeft = new double[capacity];
+		m_nodeTop = new double[capacity];
+		m_nodeRight = new double[capacity];
+		m_nodeBottom = new double[capacity];
+		m_nodeStart = new int[capacity];
+		m_nodeItems = new int[capacity];
+		m_nodeSkip = new int[capacity];
+	}
+}
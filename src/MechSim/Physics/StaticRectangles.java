@@ -0,0 +1,361 @@
+package MechSim.Physics;
+
+import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Static axis-aligned walls stored outside of the Java heap, in a bounding volume hierarchy that's searched in place
+ * The garbage collector only ever sees a handful of buffer objects, no matter how many walls are added, so heap size and pause times don't grow with the map
+ * @author Gurwinder Gulati
+ *
+ */
+public final class StaticRectangles extends StaticCollider
+{
+	static final int LEAF_SIZE = 4;//most walls kept in a single leaf
+	static final int INITIAL_CAPACITY = 64;
+	static final int ITEM_DOUBLES = 4;//left, top, right and bottom of each wall
+	static final int NODE_DOUBLES = 4, NODE_INTS = 3;//bounds of each node, then its first wall, number of walls and skip index
+
+	//walls, reordered while building so each leaf's walls are contiguous
+	DoubleBuffer m_items;
+	int m_itemCount;
+
+	//nodes, in depth-first order, so a node's first child always directly follows it
+	DoubleBuffer m_nodeBounds;
+	IntBuffer m_nodeInfo;
+	int m_nodeCount;
+	boolean m_dirty;//whether or not walls have been added since the hierarchy was built
+
+	//scratch shape each wall is copied into while it's tested against a body
+	Rectangle m_wall;
+	CollisionBounds m_wallBounds;
+	Contact m_contact;
+
+	/**
+	 * Creates an empty set of walls
+	 * @param physics PhysicsModel the walls will be added to
+	 */
+	public StaticRectangles(PhysicsModel physics)
+	{
+		super(physics);
+		m_items = AllocateDoubles(INITIAL_CAPACITY * ITEM_DOUBLES);
+		m_nodeBounds = AllocateDoubles(INITIAL_CAPACITY * 2 * NODE_DOUBLES);
+		m_nodeInfo = AllocateInts(INITIAL_CAPACITY * 2 * NODE_INTS);
+		m_wall = new Rectangle(0.0, 0.0, 0.0, 0.0);
+		m_wallBounds = new CollisionBounds(m_wall);
+		m_contact = new Contact();
+	}
+
+	/**
+	 * Adds a wall, which is searched from the next time anything collides with or casts a ray at the walls
+	 * @param x X position of the left edge of the wall
+	 * @param y Y position of the top edge of the wall
+	 * @param width Width of the wall
+	 * @param height Height of the wall
+	 */
+	public void Add(double x, double y, double width, double height)
+	{
+		if ((m_itemCount + 1) * ITEM_DOUBLES > m_items.capacity())
+			m_items = Grow(m_items, m_itemCount * ITEM_DOUBLES, m_items.capacity() * 2);
+
+		int base = m_itemCount * ITEM_DOUBLES;
+		m_items.put(base, x);
+		m_items.put(base + 1, y);
+		m_items.put(base + 2, x + width);
+		m_items.put(base + 3, y + height);
+		m_itemCount++;
+		m_dirty = true;
+	}
+
+	/**
+	 * Removes every wall, keeping the storage for reuse
+	 */
+	public void Clear()
+	{
+		m_itemCount = 0;
+		m_nodeCount = 0;
+		m_dirty = false;
+	}
+
+	/**
+	 * @return Number of walls
+	 */
+	public int GetCount() { return m_itemCount; }
+
+	/**
+	 * @return Bytes of memory reserved outside of the Java heap
+	 */
+	public long GetStorageBytes()
+	{
+		return (long)(m_items.capacity() + m_nodeBounds.capacity()) * Double.BYTES + (long)m_nodeInfo.capacity() * Integer.BYTES;
+	}
+
+	@Override
+	boolean Collide(PhysicsModel physics, int slot)
+	{
+		Build();
+		CollisionBounds bounds = physics.m_bodyBounds[slot];
+		ContactKernel kernel = ContactKernel.Get(physics.m_shape[slot], PhysicsModel.SHAPE_RECTANGLE);
+		double left = bounds.GetLeft(), top = bounds.GetTop(), right = bounds.GetRight(), bottom = bounds.GetBottom();
+		boolean touched = false;
+		int node = 0;
+		while (node < m_nodeCount)
+		{
+			if (!NodeOverlaps(node, left, top, right, bottom))
+			{
+				node = m_nodeInfo.get(node * NODE_INTS + 2);
+				continue;
+			}
+
+			int start = m_nodeInfo.get(node * NODE_INTS), end = start + m_nodeInfo.get(node * NODE_INTS + 1);
+			for (int i = start; i < end; i++)
+			{
+				if (!ItemOverlaps(i, left, top, right, bottom))
+					continue;
+				LoadWall(i);
+				if (!kernel.Intersects(bounds, m_wallBounds))
+					continue;
+
+				//pushing the body out of one wall can move it into or out of another, so the search carries on from where the body ends up
+				kernel.FindContact(bounds, m_wallBounds, m_contact);
+				physics.ResolveStaticContact(slot, m_contact);
+				left = bounds.GetLeft();
+				top = bounds.GetTop();
+				right = bounds.GetRight();
+				bottom = bounds.GetBottom();
+				touched = true;
+			}
+			node++;
+		}
+		return touched;
+	}
+
+	@Override
+	double TimeOfImpact(CollisionBounds bounds, double dX, double dY)
+	{
+		Build();
+		double left = bounds.GetLeft() + (dX < 0.0 ? dX : 0.0), top = bounds.GetTop() + (dY < 0.0 ? dY : 0.0),
+				right = bounds.GetRight() + (dX > 0.0 ? dX : 0.0), bottom = bounds.GetBottom() + (dY > 0.0 ? dY : 0.0);
+		double first = Double.POSITIVE_INFINITY;
+		int node = 0;
+		while (node < m_nodeCount)
+		{
+			if (!NodeOverlaps(node, left, top, right, bottom))
+			{
+				node = m_nodeInfo.get(node * NODE_INTS + 2);
+				continue;
+			}
+
+			int start = m_nodeInfo.get(node * NODE_INTS), end = start + m_nodeInfo.get(node * NODE_INTS + 1);
+			for (int i = start; i < end; i++)
+			{
+				if (!ItemOverlaps(i, left, top, right, bottom))
+					continue;
+				LoadWall(i);
+				double time = bounds.TimeOfImpact(dX, dY, m_wallBounds);
+				if (time > 0.0 && time < first)
+					first = time;
+			}
+			node++;
+		}
+		return first;
+	}
+
+	@Override
+	double CastRay(Ray ray, double maxDistance)
+	{
+		Build();
+		double nearest = maxDistance;
+		int node = 0;
+		while (node < m_nodeCount)
+		{
+			//skip whole subtrees the ray misses, or only reaches past the nearest hit so far
+			int base = node * NODE_DOUBLES;
+			if (ray.DistanceTo(m_nodeBounds.get(base), m_nodeBounds.get(base + 1), m_nodeBounds.get(base + 2), m_nodeBounds.get(base + 3)) >= nearest)
+			{
+				node = m_nodeInfo.get(node * NODE_INTS + 2);
+				continue;
+			}
+
+			int start = m_nodeInfo.get(node * NODE_INTS), end = start + m_nodeInfo.get(node * NODE_INTS + 1);
+			for (int i = start; i < end; i++)
+			{
+				base = i * ITEM_DOUBLES;
+				double distance = ray.DistanceTo(m_items.get(base), m_items.get(base + 1), m_items.get(base + 2), m_items.get(base + 3));
+				if (distance < nearest && distance >= 0.0)
+					nearest = distance;
+			}
+			node++;
+		}
+		return nearest < maxDistance ? nearest : Double.MAX_VALUE;
+	}
+
+	@Override
+	void RenderWireframe(Graphics2D g)
+	{
+		g.setColor(m_object.CollidedLastFrame() ? PhysicsObject.COLLIDING_COLOR : PhysicsObject.NOT_COLLIDING_COLOR);
+		for (int i = 0; i < m_itemCount; i++)
+		{
+			int base = i * ITEM_DOUBLES;
+			double left = m_items.get(base), top = m_items.get(base + 1);
+			g.drawRect((int)left, (int)top, (int)(m_items.get(base + 2) - left), (int)(m_items.get(base + 3) - top));
+		}
+	}
+
+	/**
+	 * Builds the hierarchy over every wall, if any have been added since it was last built
+	 */
+	void Build()
+	{
+		if (!m_dirty)
+			return;
+
+		//a tree with leaves of at least one wall never has more than twice as many nodes as walls
+		if (m_itemCount * 2 * NODE_DOUBLES > m_nodeBounds.capacity())
+		{
+			m_nodeBounds = AllocateDoubles(m_itemCount * 2 * NODE_DOUBLES);
+			m_nodeInfo = AllocateInts(m_itemCount * 2 * NODE_INTS);
+		}
+		m_nodeCount = 0;
+		if (m_itemCount > 0)
+			BuildNode(0, m_itemCount);
+		m_dirty = false;
+	}
+
+	private void BuildNode(int start, int end)
+	{
+		int node = m_nodeCount++;
+
+		//the node encloses all of its walls, and finds the spread of their centers while it's at it
+		double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++)
+		{
+			int base = i * ITEM_DOUBLES;
+			double itemLeft = m_items.get(base), itemTop = m_items.get(base + 1), itemRight = m_items.get(base + 2), itemBottom = m_items.get(base + 3);
+			left = itemLeft < left ? itemLeft : left;
+			top = itemTop < top ? itemTop : top;
+			right = itemRight > right ? itemRight : right;
+			bottom = itemBottom > bottom ? itemBottom : bottom;
+			double x = itemLeft + itemRight, y = itemTop + itemBottom;//twice the center, which sorts the same
+			minX = x < minX ? x : minX;
+			maxX = x > maxX ? x : maxX;
+			minY = y < minY ? y : minY;
+			maxY = y > maxY ? y : maxY;
+		}
+		int base = node * NODE_DOUBLES;
+		m_nodeBounds.put(base, left);
+		m_nodeBounds.put(base + 1, top);
+		m_nodeBounds.put(base + 2, right);
+		m_nodeBounds.put(base + 3, bottom);
+
+		base = node * NODE_INTS;
+		m_nodeInfo.put(base, start);
+		if (end - start <= LEAF_SIZE)
+		{
+			m_nodeInfo.put(base + 1, end - start);
+			m_nodeInfo.put(base + 2, m_nodeCount);
+			return;
+		}
+
+		//split at the median center along whichever axis the centers are most spread out on
+		int middle = (start + end) >>> 1;
+		Select(start, end - 1, middle, maxX - minX >= maxY - minY);
+		m_nodeInfo.put(base + 1, 0);
+		BuildNode(start, middle);
+		BuildNode(middle, end);
+		m_nodeInfo.put(base + 2, m_nodeCount);
+	}
+
+	/**
+	 * Partially sorts walls by center so the nth is in place, with no smaller centers after it and no larger ones before it
+	 */
+	private void Select(int low, int high, int nth, boolean alongX)
+	{
+		while (low < high)
+		{
+			double pivot = Center((low + high) >>> 1, alongX);
+			int i = low, j = high;
+			while (i <= j)
+			{
+				while (Center(i, alongX) < pivot)
+					i++;
+				while (Center(j, alongX) > pivot)
+					j--;
+				if (i <= j)
+					Swap(i++, j--);
+			}
+
+			if (nth <= j)
+				high = j;
+			else if (nth >= i)
+				low = i;
+			else
+				return;
+		}
+	}
+
+	private double Center(int item, boolean alongX)
+	{
+		int base = item * ITEM_DOUBLES + (alongX ? 0 : 1);
+		return m_items.get(base) + m_items.get(base + 2);
+	}
+
+	private void Swap(int i, int j)
+	{
+		int a = i * ITEM_DOUBLES, b = j * ITEM_DOUBLES;
+		for (int k = 0; k < ITEM_DOUBLES; k++)
+		{
+			double cache = m_items.get(a + k);
+			m_items.put(a + k, m_items.get(b + k));
+			m_items.put(b + k, cache);
+		}
+	}
+
+	private boolean NodeOverlaps(int node, double left, double top, double right, double bottom)
+	{
+		int base = node * NODE_DOUBLES;
+		return !(m_nodeBounds.get(base) > right || m_nodeBounds.get(base + 2) < left || m_nodeBounds.get(base + 1) > bottom || m_nodeBounds.get(base + 3) < top);
+	}
+
+	private boolean ItemOverlaps(int item, double left, double top, double right, double bottom)
+	{
+		int base = item * ITEM_DOUBLES;
+		return !(m_items.get(base) > right || m_items.get(base + 2) < left || m_items.get(base + 1) > bottom || m_items.get(base + 3) < top);
+	}
+
+	private void LoadWall(int item)
+	{
+		int base = item * ITEM_DOUBLES;
+		Rectangle wall = m_wall;
+		wall.m_x = m_items.get(base);
+		wall.m_y = m_items.get(base + 1);
+		wall.m_right = m_items.get(base + 2);
+		wall.m_bottom = m_items.get(base + 3);
+		wall.m_width = wall.m_right - wall.m_x;
+		wall.m_height = wall.m_bottom - wall.m_y;
+	}
+
+	private static DoubleBuffer AllocateDoubles(int count)
+	{
+		return ByteBuffer.allocateDirect(count * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+	}
+
+	private static IntBuffer AllocateInts(int count)
+	{
+		return ByteBuffer.allocateDirect(count * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	private static DoubleBuffer Grow(DoubleBuffer buffer, int used, int capacity)
+	{
+		DoubleBuffer grown = AllocateDoubles(capacity), source = buffer.duplicate();
+		source.position(0);
+		source.limit(used);
+		grown.put(source);
+		grown.clear();
+		return grown;
+	}
+}
@@ -0,0 +1,257 @@
+package MechSim.Physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Broadphase that keeps the edges of every PhysicsObject's bounding box sorted along both axes
+ * Sorting uses insertion sort, which is nearly linear because PhysicsObjects barely move between frames
+ * @author Gurwinder Gulati
+ *
+ */
+final class SweepAndPrune implements Broadphase
+{
+	static final int INITIAL_CAPACITY = 64;
+	
+	//per-proxy bounding boxes, indexed by PhysicsObject.m_proxy
+	PhysicsObject[] m_proxyObjects;
+	double[] m_minX, m_minY, m_maxX, m_maxY;
+	int m_proxyCount;
+	int[] m_freeProxies;
+	int m_freeCount;
+	
+	//endpoints sorted along each axis - each entry is (proxy << 1) for a minimum and (proxy << 1 | 1) for a maximum
+	int[] m_endpointsX, m_endpointsY;
+	double[] m_valuesX, m_valuesY;
+	int m_endpointCount;
+	boolean m_dirty;
+	boolean m_sweepAlongY;
+	
+	//proxies whose intervals are open at the current point of a sweep
+	int[] m_active, m_activeIndex;
+	int m_activeCount;
+	
+	/**
+	 * Creates an empty sweep-and-prune index
+	 */
+	SweepAndPrune()
+	{
+		m_proxyObjects = new PhysicsObject[INITIAL_CAPACITY];
+		m_minX = new double[INITIAL_CAPACITY];
+		m_minY = new double[INITIAL_CAPACITY];
+		m_maxX = new double[INITIAL_CAPACITY];
+		m_maxY = new double[INITIAL_CAPACITY];
+		m_freeProxies = new int[INITIAL_CAPACITY];
+		m_active = new int[INITIAL_CAPACITY];
+		m_activeIndex = new int[INITIAL_CAPACITY];
+		
+		m_endpointsX = new int[INITIAL_CAPACITY * 2];
+		m_endpointsY = new int[INITIAL_CAPACITY * 2];
+		m_valuesX = new double[INITIAL_CAPACITY * 2];
+		m_valuesY = new double[INITIAL_CAPACITY * 2];
+	}
+
+	@Override
+	public void Insert(PhysicsObject obj)
+	{
+		int proxy = AllocateProxy();
+		m_proxyObjects[proxy] = obj;
+		obj.m_proxy = proxy;
+		StoreBox(proxy, obj.m_bounds);
+		
+		//new endpoints go on the end; the next sort moves them into place
+		int min = proxy << 1, max = min | 1;
+		m_endpointsX[m_endpointCount] = min;
+		m_endpointsY[m_endpointCount] = min;
+		m_endpointCount++;
+		m_endpointsX[m_endpointCount] = max;
+		m_endpointsY[m_endpointCount] = max;
+		m_endpointCount++;
+		m_dirty = true;
+	}
+
+	@Override
+	public void Remove(PhysicsObject obj)
+	{
+		int proxy = obj.m_proxy;
+		if (proxy < 0)
+			return;
+		
+		//compact the endpoint arrays, which keeps the remaining endpoints in sorted order
+		int write = 0;
+		for (int read = 0; read < m_endpointCount; read++)
+		{
+			if (m_endpointsX[read] >>> 1 != proxy)
+			{
+				m_endpointsX[write] = m_endpointsX[read];
+				m_valuesX[write] = m_valuesX[read];
+				write++;
+			}
+		}
+		write = 0;
+		for (int read = 0; read < m_endpointCount; read++)
+		{
+			if (m_endpointsY[read] >>> 1 != proxy)
+			{
+				m_endpointsY[write] = m_endpointsY[read];
+				m_valuesY[write] = m_valuesY[read];
+				write++;
+			}
+		}
+		m_endpointCount = write;
+		
+		m_proxyObjects[proxy] = null;
+		m_freeProxies[m_freeCount++] = proxy;
+		obj.m_proxy = -1;
+	}
+
+	@Override
+	public void Update(PhysicsObject obj)
+	{
+		int proxy = obj.m_proxy;
+		if (proxy < 0)
+			return;
+		
+		//re-sorting is deferred until the endpoints are next needed, so an object moved several times a frame is only sorted once
+		StoreBox(proxy, obj.m_bounds);
+		m_dirty = true;
+	}
+
+	@Override
+	public void Query(double left, double top, double right, double bottom, List<PhysicsObject> results)
+	{
+		EnsureSorted();
+		
+		//every interval that opens after the right edge of the query box cannot overlap it
+		int[] endpoints = m_sweepAlongY ? m_endpointsY : m_endpointsX;
+		double[] values = m_sweepAlongY ? m_valuesY : m_valuesX;
+		double end = m_sweepAlongY ? bottom : right;
+		for (int i = 0; i < m_endpointCount && values[i] <= end; i++)
+		{
+			int endpoint = endpoints[i];
+			if ((endpoint & 1) != 0)
+				continue;
+			
+			int proxy = endpoint >>> 1;
+			if (m_minX[proxy] <= right && m_maxX[proxy] >= left && m_minY[proxy] <= bottom && m_maxY[proxy] >= top)
+				results.add(m_proxyObjects[proxy]);
+		}
+	}
+
+	@Override
+	public void FindPairs(PairList pairs)
+	{
+		EnsureSorted();
+		
+		int[] endpoints = m_sweepAlongY ? m_endpointsY : m_endpointsX;
+		double[] otherMin = m_sweepAlongY ? m_minX : m_minY, otherMax = m_sweepAlongY ? m_maxX : m_maxY;
+		
+		m_activeCount = 0;
+		for (int i = 0; i < m_endpointCount; i++)
+		{
+			int endpoint = endpoints[i], proxy = endpoint >>> 1;
+			if ((endpoint & 1) == 0)
+			{
+				//an interval is opening - it overlaps every open interval on the sweep axis, so only the other axis needs checking
+				double min = otherMin[proxy], max = otherMax[proxy];
+				PhysicsObject alpha = m_proxyObjects[proxy];
+				for (int j = 0; j < m_activeCount; j++)
+				{
+					int other = m_active[j];
+					if (min <= otherMax[other] && max >= otherMin[other])
+						pairs.Add(alpha, m_proxyObjects[other]);
+				}
+				
+				m_activeIndex[proxy] = m_activeCount;
+				m_active[m_activeCount++] = proxy;
+			}
+			else
+			{
+				//an interval is closing - swap the last open interval into its place
+				int index = m_activeIndex[proxy], last = m_active[--m_activeCount];
+				m_active[index] = last;
+				m_activeIndex[last] = index;
+			}
+		}
+	}
+	
+	private void StoreBox(int proxy, CollisionBounds bounds)
+	{
+		m_minX[proxy] = bounds.GetLeft();
+		m_minY[proxy] = bounds.GetTop();
+		m_maxX[proxy] = bounds.GetRight();
+		m_maxY[proxy] = bounds.GetBottom();
+	}
+	
+	private void EnsureSorted()
+	{
+		if (!m_dirty)
+			return;
+		m_dirty = false;
+		
+		Sort(m_endpointsX, m_valuesX, m_minX, m_maxX);
+		Sort(m_endpointsY, m_valuesY, m_minY, m_maxY);
+		
+		//sweep along whichever axis the boxes are spread out along the most, since it has the fewest overlapping intervals
+		double sumX = 0.0, sumSquaresX = 0.0, sumY = 0.0, sumSquaresY = 0.0;
+		for (int i = 0; i < m_endpointCount; i++)
+		{
+			sumX += m_valuesX[i];
+			sumSquaresX += m_valuesX[i] * m_valuesX[i];
+			sumY += m_valuesY[i];
+			sumSquaresY += m_valuesY[i] * m_valuesY[i];
+		}
+		m_sweepAlongY = sumSquaresY - sumY * sumY / m_endpointCount > sumSquaresX - sumX * sumX / m_endpointCount;
+	}
+	
+	private void Sort(int[] endpoints, double[] values, double[] mins, double[] maxes)
+	{
+		//refresh every endpoint from the proxy boxes, then insertion sort
+		for (int i = 0; i < m_endpointCount; i++)
+		{
+			int endpoint = endpoints[i];
+			values[i] = (endpoint & 1) == 0 ? mins[endpoint >>> 1] : maxes[endpoint >>> 1];
+		}
+		
+		for (int i = 1; i < m_endpointCount; i++)
+		{
+			int endpoint = endpoints[i];
+			double value = values[i];
+			int j = i - 1;
+			//minimums sort before maximums with the same value so that touching boxes still count as overlapping
+			while (j >= 0 && (values[j] > value || (values[j] == value && (endpoints[j] & 1) > (endpoint & 1))))
+			{
+				endpoints[j + 1] = endpoints[j];
+				values[j + 1] = values[j];
+				j--;
+			}
+			endpoints[j + 1] = endpoint;
+			values[j + 1] = value;
+		}
+	}
+	
+	private int AllocateProxy()
+	{
+		if (m_freeCount > 0)
+			return m_freeProxies[--m_freeCount];
+		
+		if (m_proxyCount == m_proxyObjects.length)
+		{
+			int capacity = m_proxyCount * 2;
+			m_proxyObjects = Arrays.copyOf(m_proxyObjects, capacity);
+			m_minX = Arrays.copyOf(m_minX, capacity);
+			m_minY = Arrays.copyOf(m_minY, capacity);
+			m_maxX = Arrays.copyOf(m_maxX, capacity);
+			m_maxY = Arrays.copyOf(m_maxY, capacity);
+			m_freeProxies = Arrays.copyOf(m_freeProxies, capacity);
+			m_active = Arrays.copyOf(m_active, capacity);
+			m_activeIndex = Arrays.copyOf(m_activeIndex, capacity);
+			
+			m_endpointsX = Arrays.copyOf(m_endpointsX, capacity * 2);
+			m_endpointsY = Arrays.copyOf(m_endpointsY, capacity * 2);
+			m_valuesX = Arrays.copyOf(m_valuesX, capacity * 2);
+			m_valuesY = Arrays.copyOf(m_valuesY, capacity * 2);
+		}
+		return m_proxyCount++;
+	}
+}
@@ -0,0 +1,310 @@
+package MechSim.Physics;
+
+import java.awt.Graphics2D;
+import java.util.Arrays;
+
+/**
+ * A grid of equally sized square cells, each of which is either solid or empty, such as the walls of a maze
+ * Bodies are only checked against the handful of cells under them, and rays step from cell to cell, so the size of the grid doesn't affect the cost of a step
+ * @author Gurwinder Gulati
+ *
+ */
+public final class TileMap extends StaticCollider
+{
+	static final byte EMPTY = 0, SOLID = 1;
+
+	double m_x, m_y;//position of the top left corner of the grid
+	double m_cellSize;
+	int m_columns, m_rows;
+	byte[] m_cells;//one per cell, row by row
+
+	//scratch shape each cell is copied into while it's tested against a body
+	Rectangle m_cell;
+	CollisionBounds m_cellBounds;
+	Contact m_contact;
+
+	/**
+	 * Creates a grid with every cell empty
+	 * @param physics PhysicsModel the grid will be added to
+	 * @param x X position of the left edge of the grid
+	 * @param y Y position of the top edge of the grid
+	 * @param columns Number of cells across
+	 * @param rows Number of cells down
+	 * @param cellSize Width and height of each cell
+	 */
+	public TileMap(PhysicsModel physics, double x, double y, int columns, int rows, double cellSize)
+	{
+		super(physics);
+		m_x = x;
+		m_y = y;
+		m_columns = columns < 1 ? 1 : columns;
+		m_rows = rows < 1 ? 1 : rows;
+		m_cellSize = cellSize <= 0.0 ? 1.0 : cellSize;
+		m_cells = new byte[m_columns * m_rows];
+		m_cell = new Rectangle(0.0, 0.0, m_cellSize, m_cellSize);
+		m_cellBounds = new CollisionBounds(m_cell);
+		m_contact = new Contact();
+	}
+
+	/**
+	 * Makes a cell solid or empty; cells outside of the grid are ignored
+	 * @param column Column of the cell, from the left
+	 * @param row Row of the cell, from the top
+	 * @param solid Whether or not the cell should be solid
+	 */
+	public void SetSolid(int column, int row, boolean solid)
+	{
+		if (column >= 0 && column < m_columns && row >= 0 && row < m_rows)
+			m_cells[row * m_columns + column] = solid ? SOLID : EMPTY;
+	}
+
+	/**
+	 * @param column Column of the cell, from the left
+	 * @param row Row of the cell, from the top
+	 * @return Whether or not the cell is solid; cells outside of the grid are empty
+	 */
+	public boolean IsSolid(int column, int row)
+	{
+		return column >= 0 && column < m_columns && row >= 0 && row < m_rows && m_cells[row * m_columns + column] != EMPTY;
+	}
+
+	/**
+	 * Empties every cell
+	 */
+	public void Clear()
+	{
+		Arrays.fill(m_cells, EMPTY);
+	}
+
+	/**
+	 * @param x X position in the world
+	 * @return Column containing the position, which may lie outside of the grid
+	 */
+	public int GetColumnAt(double x) { return (int)Math.floor((x - m_x) / m_cellSize); }
+
+	/**
+	 * @param y Y position in the world
+	 * @return Row containing the position, which may lie outside of the grid
+	 */
+	public int GetRowAt(double y) { return (int)Math.floor((y - m_y) / m_cellSize); }
+
+	/**
+	 * @return Number of cells across
+	 */
+	public int GetColumns() { return m_columns; }
+
+	/**
+	 * @return Number of cells down
+	 */
+	public int GetRows() { return m_rows; }
+
+	/**
+	 * @return Width and height of each cell
+	 */
+	public double GetCellSize() { return m_cellSize; }
+
+	@Override
+	boolean Collide(PhysicsModel physics, int slot)
+	{
+		CollisionBounds bounds = physics.m_bodyBounds[slot];
+		int firstColumn = ClampColumn(GetColumnAt(bounds.GetLeft())), lastColumn = ClampColumn(GetColumnAt(bounds.GetRight())),
+				firstRow = ClampRow(GetRowAt(bounds.GetTop())), lastRow = ClampRow(GetRowAt(bounds.GetBottom()));
+		ContactKernel kernel = ContactKernel.Get(physics.m_shape[slot], PhysicsModel.SHAPE_RECTANGLE);
+		boolean touched = false;
+		for (int row = firstRow; row <= lastRow; row++)
+		{
+			for (int column = firstColumn; column <= lastColumn; column++)
+			{
+				if (m_cells[row * m_columns + column] == EMPTY)
+					continue;
+				LoadCell(column, row);
+				if (!kernel.Intersects(bounds, m_cellBounds))
+					continue;
+
+				//the edge between two solid cells is inside the wall, so a body sliding along the wall mustn't catch on it
+				//instead the body is pushed out through whichever of the cell's outer edges is nearest, if it has any
+				kernel.FindContact(bounds, m_cellBounds, m_contact);
+				if (IsInternalEdge(column, row, m_contact) && !FindExposedContact(column, row, bounds, m_contact))
+					continue;
+				physics.ResolveStaticContact(slot, m_contact);
+				touched = true;
+			}
+		}
+		return touched;
+	}
+
+	@Override
+	double TimeOfImpact(CollisionBounds bounds, double dX, double dY)
+	{
+		double left = bounds.GetLeft(), top = bounds.GetTop(), right = bounds.GetRight(), bottom = bounds.GetBottom();
+		int firstRow = GetRowAt(top + (dY < 0.0 ? dY : 0.0)), lastRow = GetRowAt(bottom + (dY > 0.0 ? dY : 0.0));
+		if (lastRow < 0 || firstRow >= m_rows)
+			return Double.POSITIVE_INFINITY;
+		firstRow = ClampRow(firstRow);
+		lastRow = ClampRow(lastRow);
+
+		//a fast diagonal movement sweeps a large box, but the shape only passes over a thin band of it
+		//so each row is only checked across the columns the shape covers while it's passing over that row, in the order it reaches them
+		int rowStep = dY < 0.0 ? -1 : 1;
+		double first = Double.POSITIVE_INFINITY;
+		for (int row = rowStep > 0 ? firstRow : lastRow; row >= firstRow && row <= lastRow; row += rowStep)
+		{
+			double start = 0.0, end = 1.0;
+			if (dY != 0.0)
+			{
+				double rowTop = m_y + row * m_cellSize;
+				start = ((dY > 0.0 ? rowTop : rowTop + m_cellSize) - (dY > 0.0 ? bottom : top)) / dY;
+				end = ((dY > 0.0 ? rowTop + m_cellSize : rowTop) - (dY > 0.0 ? top : bottom)) / dY;
+				start = start < 0.0 ? 0.0 : start;
+				end = end > 1.0 ? 1.0 : end;
+			}
+			if (start >= first)
+				break;//every later row is only reached after the first impact already found
+
+			int firstColumn = ClampColumn(GetColumnAt(left + dX * (dX < 0.0 ? end : start))),
+					lastColumn = ClampColumn(GetColumnAt(right + dX * (dX < 0.0 ? start : end)));
+			for (int column = firstColumn; column <= lastColumn; column++)
+			{
+				if (m_cells[row * m_columns + column] == EMPTY)
+					continue;
+				LoadCell(column, row);
+				double time = bounds.TimeOfImpact(dX, dY, m_cellBounds);
+				if (time > 0.0 && time < first)
+					first = time;
+			}
+		}
+		return first;
+	}
+
+	@Override
+	double CastRay(Ray ray, double maxDistance)
+	{
+		//start where the ray enters the grid, which is its origin if it starts inside
+		double distance = ray.DistanceTo(m_x, m_y, m_x + m_columns * m_cellSize, m_y + m_rows * m_cellSize);
+		if (distance >= maxDistance)
+			return Double.MAX_VALUE;
+		double headingX = ray.m_headingX, headingY = ray.m_headingY;
+		int column = ClampColumn(GetColumnAt(ray.m_originX + headingX * distance)), row = ClampRow(GetRowAt(ray.m_originY + headingY * distance));
+
+		//then walk the cells the ray passes through in order, keeping track of how far along the ray the next column and row boundaries are
+		int stepX = headingX > 0.0 ? 1 : headingX < 0.0 ? -1 : 0, stepY = headingY > 0.0 ? 1 : headingY < 0.0 ? -1 : 0;
+		double nextX = stepX == 0 ? Double.POSITIVE_INFINITY : (m_x + (column + (stepX > 0 ? 1 : 0)) * m_cellSize - ray.m_originX) / headingX,
+				nextY = stepY == 0 ? Double.POSITIVE_INFINITY : (m_y + (row + (stepY > 0 ? 1 : 0)) * m_cellSize - ray.m_originY) / headingY;
+		double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : m_cellSize / Math.abs(headingX),
+				deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : m_cellSize / Math.abs(headingY);
+		while (distance < maxDistance)
+		{
+			if (m_cells[row * m_columns + column] != EMPTY)
+				return distance;
+
+			if (nextX < nextY)
+			{
+				column += stepX;
+				distance = nextX;
+				nextX += deltaX;
+			}
+			else
+			{
+				row += stepY;
+				distance = nextY;
+				nextY += deltaY;
+			}
+			if (column < 0 || column >= m_columns || row < 0 || row >= m_rows)
+				break;
+		}
+		return Double.MAX_VALUE;
+	}
+
+	@Override
+	void RenderWireframe(Graphics2D g)
+	{
+		//only the cells that can actually end up on screen are drawn, since a large grid would take far longer to draw than to simulate
+		int firstColumn = 0, lastColumn = m_columns - 1, firstRow = 0, lastRow = m_rows - 1;
+		java.awt.Rectangle clip = g.getClipBounds();
+		if (clip != null)
+		{
+			firstColumn = ClampColumn(GetColumnAt(clip.x));
+			lastColumn = ClampColumn(GetColumnAt(clip.x + clip.width));
+			firstRow = ClampRow(GetRowAt(clip.y));
+			lastRow = ClampRow(GetRowAt(clip.y + clip.height));
+		}
+
+		g.setColor(m_object.CollidedLastFrame() ? PhysicsObject.COLLIDING_COLOR : PhysicsObject.NOT_COLLIDING_COLOR);
+		int size = (int)m_cellSize;
+		for (int row = firstRow; row <= lastRow; row++)
+		{
+			for (int column = firstColumn; column <= lastColumn; column++)
+			{
+				if (m_cells[row * m_columns + column] != EMPTY)
+					g.drawRect((int)(m_x + column * m_cellSize), (int)(m_y + row * m_cellSize), size, size);
+			}
+		}
+	}
+
+	/**
+	 * @return Whether or not a contact with a cell is against an edge it shares with a solid neighbour
+	 */
+	private boolean IsInternalEdge(int column, int row, Contact contact)
+	{
+		//the normal points from the body into the cell, so the edge faces back the other way
+		if (contact.m_normalY == 0.0)
+			return IsSolid(column - (contact.m_normalX > 0.0 ? 1 : -1), row);
+		if (contact.m_normalX == 0.0)
+			return IsSolid(column, row - (contact.m_normalY > 0.0 ? 1 : -1));
+		return false;
+	}
+
+	/**
+	 * Finds the shortest way out of the current cell through an edge that doesn't border another solid cell
+	 * @return Whether or not the body is centered inside the cell, and the cell has any such edge
+	 */
+	private boolean FindExposedContact(int column, int row, CollisionBounds bounds, Contact contact)
+	{
+		//a body centered outside of the cell is nearer to one of its neighbours, which pushes it out instead
+		Rectangle cell = m_cell;
+		double centerX = (bounds.GetLeft() + bounds.GetRight()) * 0.5, centerY = (bounds.GetTop() + bounds.GetBottom()) * 0.5;
+		if (centerX < cell.m_x || centerX > cell.m_right || centerY < cell.m_y || centerY > cell.m_bottom)
+			return false;
+
+		double depth = Double.POSITIVE_INFINITY;
+		if (!IsSolid(column - 1, row) && bounds.GetRight() - cell.m_x < depth)
+		{
+			depth = bounds.GetRight() - cell.m_x;
+			contact.m_normalX = 1.0;
+			contact.m_normalY = 0.0;
+		}
+		if (!IsSolid(column + 1, row) && cell.m_right - bounds.GetLeft() < depth)
+		{
+			depth = cell.m_right - bounds.GetLeft();
+			contact.m_normalX = -1.0;
+			contact.m_normalY = 0.0;
+		}
+		if (!IsSolid(column, row - 1) && bounds.GetBottom() - cell.m_y < depth)
+		{
+			depth = bounds.GetBottom() - cell.m_y;
+			contact.m_normalX = 0.0;
+			contact.m_normalY = 1.0;
+		}
+		if (!IsSolid(column, row + 1) && cell.m_bottom - bounds.GetTop() < depth)
+		{
+			depth = cell.m_bottom - bounds.GetTop();
+			contact.m_normalX = 0.0;
+			contact.m_normalY = -1.0;
+		}
+		contact.m_depth = depth;
+		return depth != Double.POSITIVE_INFINITY;
+	}
+
+	private void LoadCell(int column, int row)
+	{
+		Rectangle cell = m_cell;
+		cell.m_x = m_x + column * m_cellSize;
+		cell.m_y = m_y + row * m_cellSize;
+		cell.m_right = cell.m_x + m_cellSize;
+		cell.m_bottom = cell.m_y + m_cellSize;
+	}
+
+	private int ClampColumn(int column) { return column < 0 ? 0 : column >= m_columns ? m_columns - 1 : column; }
+
+	private int ClampRow(int row) { return row < 0 ? 0 : row >= m_rows ? m_rows - 1 : row; }
+}
@@ -0,0 +1,317 @@
+package MechSim.Physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Broadphase that buckets PhysicsObjects into the cells of an unbounded uniform grid
+ * Cells are stored in a spatial hash, so only cells that have been occupied take up memory
+ * @author Gurwinder Gulati
+ *
+ */
+final class UniformGrid implements Broadphase
+{
+	static final int INITIAL_TABLE_SIZE = 256;//must be a power of two
+	static final int INITIAL_PROXY_CAPACITY = 64, INITIAL_CELL_CAPACITY = 4;
+	static final long EMPTY_KEY = Long.MIN_VALUE;
+	
+	double m_cellSize, m_inverseCellSize;
+	
+	//open-addressed hash table from packed cell coordinates to the proxies in that cell
+	long[] m_cellKeys;
+	int[][] m_cellItems;
+	int[] m_cellCounts;
+	int m_cellsUsed;
+	
+	//per-proxy data, indexed by PhysicsObject.m_proxy
+	PhysicsObject[] m_proxyObjects;
+	int[] m_proxyMinX, m_proxyMinY, m_proxyMaxX, m_proxyMaxY;
+	int[] m_proxyStamps;
+	int m_proxyCount;
+	int[] m_freeProxies;
+	int m_freeCount;
+	int m_queryStamp;
+	
+	/**
+	 * Creates an empty uniform grid
+	 * @param cellSize Width and height of each cell
+	 */
+	UniformGrid(double cellSize)
+	{
+		m_cellSize = cellSize;
+		m_inverseCellSize = 1.0 / cellSize;
+		
+		m_cellKeys = new long[INITIAL_TABLE_SIZE];
+		Arrays.fill(m_cellKeys, EMPTY_KEY);
+		m_cellItems = new int[INITIAL_TABLE_SIZE][];
+		m_cellCounts = new int[INITIAL_TABLE_SIZE];
+		
+		m_proxyObjects = new PhysicsObject[INITIAL_PROXY_CAPACITY];
+		m_proxyMinX = new int[INITIAL_PROXY_CAPACITY];
+		m_proxyMinY = new int[INITIAL_PROXY_CAPACITY];
+		m_proxyMaxX = new int[INITIAL_PROXY_CAPACITY];
+		m_proxyMaxY = new int[INITIAL_PROXY_CAPACITY];
+		m_proxyStamps = new int[INITIAL_PROXY_CAPACITY];
+		m_freeProxies = new int[INITIAL_PROXY_CAPACITY];
+	}
+
+	@Override
+	public void Insert(PhysicsObject obj)
+	{
+		int proxy = AllocateProxy();
+		m_proxyObjects[proxy] = obj;
+		obj.m_proxy = proxy;
+		
+		CollisionBounds bounds = obj.m_bounds;
+		m_proxyMinX[proxy] = ToCell(bounds.GetLeft());
+		m_proxyMinY[proxy] = ToCell(bounds.GetTop());
+		m_proxyMaxX[proxy] = ToCell(bounds.GetRight());
+		m_proxyMaxY[proxy] = ToCell(bounds.GetBottom());
+		AddToCells(proxy);
+	}
+
+	@Override
+	public void Remove(PhysicsObject obj)
+	{
+		int proxy = obj.m_proxy;
+		if (proxy < 0)
+			return;
+		
+		RemoveFromCells(proxy);
+		m_proxyObjects[proxy] = null;
+		m_freeProxies[m_freeCount++] = proxy;
+		obj.m_proxy = -1;
+	}
+
+	@Override
+	public void Update(PhysicsObject obj)
+	{
+		int proxy = obj.m_proxy;
+		if (proxy < 0)
+			return;
+		
+		CollisionBounds bounds = obj.m_bounds;
+		int minX = ToCell(bounds.GetLeft()), minY = ToCell(bounds.GetTop()),
+				maxX = ToCell(bounds.GetRight()), maxY = ToCell(bounds.GetBottom());
+		
+		//most movement happens inside a single cell, so only re-bucket when the covered cells change
+		if (minX == m_proxyMinX[proxy] && minY == m_proxyMinY[proxy] && maxX == m_proxyMaxX[proxy] && maxY == m_proxyMaxY[proxy])
+			return;
+		
+		RemoveFromCells(proxy);
+		m_proxyMinX[proxy] = minX;
+		m_proxyMinY[proxy] = minY;
+		m_proxyMaxX[proxy] = maxX;
+		m_proxyMaxY[proxy] = maxY;
+		AddToCells(proxy);
+	}
+
+	@Override
+	public void Query(double left, double top, double right, double bottom, List<PhysicsObject> results)
+	{
+		//stamp each proxy as it is reported so PhysicsObjects spanning several cells are only reported once
+		if (++m_queryStamp == 0)
+		{
+			Arrays.fill(m_proxyStamps, 0);
+			m_queryStamp = 1;
+		}
+		
+		int minX = ToCell(left), minY = ToCell(top), maxX = ToCell(right), maxY = ToCell(bottom);
+		for (int x = minX; x <= maxX; x++)
+		{
+			for (int y = minY; y <= maxY; y++)
+			{
+				int cell = FindCell(x, y);
+				if (cell < 0)
+					continue;
+				
+				int[] items = m_cellItems[cell];
+				int count = m_cellCounts[cell];
+				for (int i = 0; i < count; i++)
+				{
+					int proxy = items[i];
+					if (m_proxyStamps[proxy] != m_queryStamp)
+					{
+						m_proxyStamps[proxy] = m_queryStamp;
+						results.add(m_proxyObjects[proxy]);
+					}
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void FindPairs(PairList pairs)
+	{
+		for (int proxy = 0; proxy < m_proxyCount; proxy++)
+		{
+			PhysicsObject alpha = m_proxyObjects[proxy];
+			if (alpha == null)//freed proxy
+				continue;
+			
+			if (++m_queryStamp == 0)
+			{
+				Arrays.fill(m_proxyStamps, 0);
+				m_queryStamp = 1;
+			}
+			
+			for (int x = m_proxyMinX[proxy]; x <= m_proxyMaxX[proxy]; x++)
+			{
+				for (int y = m_proxyMinY[proxy]; y <= m_proxyMaxY[proxy]; y++)
+				{
+					int cell = FindCell(x, y);
+					int[] items = m_cellItems[cell];
+					int count = m_cellCounts[cell];
+					for (int i = 0; i < count; i++)
+					{
+						//only report a pair from its lower-numbered proxy so that it's reported once
+						int other = items[i];
+						if (other > proxy && m_proxyStamps[other] != m_queryStamp)
+						{
+							m_proxyStamps[other] = m_queryStamp;
+							pairs.Add(alpha, m_proxyObjects[other]);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	private int ToCell(double coordinate)
+	{
+		return (int)Math.floor(coordinate * m_inverseCellSize);
+	}
+	
+	private static long PackKey(int x, int y)
+	{
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+	
+	private static int Hash(long key, int mask)
+	{
+		//Fibonacci hashing spreads neighbouring cells across the table
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+	}
+	
+	private int FindCell(int x, int y)
+	{
+		long key = PackKey(x, y);
+		int mask = m_cellKeys.length - 1;
+		for (int i = Hash(key, mask); ; i = (i + 1) & mask)
+		{
+			if (m_cellKeys[i] == key)
+				return i;
+			if (m_cellKeys[i] == EMPTY_KEY)
+				return -1;
+		}
+	}
+	
+	private int FindOrCreateCell(int x, int y)
+	{
+		if ((m_cellsUsed + 1) * 2 > m_cellKeys.length)
+			GrowTable();
+		
+		long key = PackKey(x, y);
+		int mask = m_cellKeys.length - 1;
+		for (int i = Hash(key, mask); ; i = (i + 1) & mask)
+		{
+			if (m_cellKeys[i] == key)
+				return i;
+			if (m_cellKeys[i] == EMPTY_KEY)
+			{
+				//cells are never removed from the table, only emptied, so there are no tombstones to worry about
+				m_cellKeys[i] = key;
+				m_cellItems[i] = new int[INITIAL_CELL_CAPACITY];
+				m_cellCounts[i] = 0;
+				m_cellsUsed++;
+				return i;
+			}
+		}
+	}
+	
+	private void GrowTable()
+	{
+		long[] oldKeys = m_cellKeys;
+		int[][] oldItems = m_cellItems;
+		int[] oldCounts = m_cellCounts;
+		
+		int size = oldKeys.length * 2, mask = size - 1;
+		m_cellKeys = new long[size];
+		Arrays.fill(m_cellKeys, EMPTY_KEY);
+		m_cellItems = new int[size][];
+		m_cellCounts = new int[size];
+		
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] == EMPTY_KEY)
+				continue;
+			int j = Hash(oldKeys[i], mask);
+			while (m_cellKeys[j] != EMPTY_KEY)
+				j = (j + 1) & mask;
+			m_cellKeys[j] = oldKeys[i];
+			m_cellItems[j] = oldItems[i];
+			m_cellCounts[j] = oldCounts[i];
+		}
+	}
+	
+	private void AddToCells(int proxy)
+	{
+		for (int x = m_proxyMinX[proxy]; x <= m_proxyMaxX[proxy]; x++)
+		{
+			for (int y = m_proxyMinY[proxy]; y <= m_proxyMaxY[proxy]; y++)
+			{
+				int cell = FindOrCreateCell(x, y);
+				int count = m_cellCounts[cell];
+				if (count == m_cellItems[cell].length)
+					m_cellItems[cell] = Arrays.copyOf(m_cellItems[cell], count * 2);
+				m_cellItems[cell][count] = proxy;
+				m_cellCounts[cell] = count + 1;
+			}
+		}
+	}
+	
+	private void RemoveFromCells(int proxy)
+	{
+		for (int x = m_proxyMinX[proxy]; x <= m_proxyMaxX[proxy]; x++)
+		{
+			for (int y = m_proxyMinY[proxy]; y <= m_proxyMaxY[proxy]; y++)
+			{
+				int cell = FindCell(x, y);
+				if (cell < 0)
+					continue;
+				
+				//order within a cell doesn't matter, so swap the last proxy into the removed one's place
+				int[] items = m_cellItems[cell];
+				int count = m_cellCounts[cell];
+				for (int i = 0; i < count; i++)
+				{
+					if (items[i] == proxy)
+					{
+						items[i] = items[count - 1];
+						m_cellCounts[cell] = count - 1;
+						break;
+					}
+				}
+			}
+		}
+	}
+	
+	private int AllocateProxy()
+	{
+		if (m_freeCount > 0)
+			return m_freeProxies[--m_freeCount];
+		
+		if (m_proxyCount == m_proxyObjects.length)
+		{
+			int capacity = m_proxyCount * 2;
+			m_proxyObjects = Arrays.copyOf(m_proxyObjects, capacity);
+			m_proxyMinX = Arrays.copyOf(m_proxyMinX, capacity);
+			m_proxyMinY = Arrays.copyOf(m_proxyMinY, capacity);
+			m_proxyMaxX = Arrays.copyOf(m_proxyMaxX, capacity);
+			m_proxyMaxY = Arrays.copyOf(m_proxyMaxY, capacity);
+			m_proxyStamps = Arrays.copyOf(m_proxyStamps, capacity);
+			m_freeProxies = Arrays.copyOf(m_freeProxies, capacity);
+		}
+		return m_proxyCount++;
+	}
+}
@@ -64,6 +64,29 @@ public final class Vector2
 		return new Vector2(m_x, m_y, m_magnitude);
 	}
 	
+	/**
+	 * Sets both values of the Vector2 at once
+	 * @param x New X value of the Vector2
+	 * @param y New Y value of the Vector2
+	 */
+	public void Set(double x, double y)
+	{
+		m_x = x;
+		m_y = y;
+		m_magnitude = UNCALCULATED_MAGNITUDE;
+	}
+	
+	/**
+	 * Copies the values of another Vector2 into this one
+	 * @param other Vector2 to copy
+	 */
+	public void Set(Vector2 other)
+	{
+		m_x = other.m_x;
+		m_y = other.m_y;
+		m_magnitude = other.m_magnitude;
+	}
+	
 	/**
 	 * @param x New X value of the Vector2
 	 */
@@ -108,12 +131,14 @@ public final class Vector2
 	}
 	
 	/**
-	 * Scales the Vector2 so it becomes a unit vector
+	 * Scales the Vector2 so it becomes a unit vector, or leaves it alone if it has no length
 	 */
 	public void NormalizeInPlace()
 	{
 		if (m_magnitude == UNCALCULATED_MAGNITUDE)
 			m_magnitude = Math.sqrt(m_x * m_x + m_y * m_y);
+		if (m_magnitude == 0.0)
+			return;
 		
 		m_x /= m_magnitude;
 		m_y /= m_magnitude;
@@ -139,6 +164,7 @@ public final class Vector2
 	{
 		m_x += other.m_x;
 		m_y += other.m_y;
+		m_magnitude = UNCALCULATED_MAGNITUDE;
 	}
 	
 	/**
@@ -147,8 +173,9 @@ public final class Vector2
 	 */
 	public void Subtract(Vector2 other)
 	{
-		m_x -= other.m_y;
-		
+		m_x -= other.m_x;
+		m_y -= other.m_y;
+		m_magnitude = UNCALCULATED_MAGNITUDE;
 	}
 	
 	/**
@@ -171,4 +198,13 @@ public final class Vector2
 		m_x = m_x - scale * normal.m_x;
 		m_y = m_y - scale * normal.m_y;
 	}
+	
+	/**
+	 * @param other Other Vector2 involved in operation
+	 * @return Dot product
+	 */
+	public double GetDotProduct(Vector2 other)
+	{
+		return m_x * other.m_x + m_y * other.m_y;
+	}
 }
@@ -0,0 +1,32 @@
+package MechSim.Physics;
+
+/**
+ * Moves each body by its old velocity plus half a step of acceleration, then updates its velocity
+ * @author Gurwinder Gulati
+ *
+ */
+final class VerletIntegrator implements Integrator
+{
+	@Override
+	public void Integrate(PhysicsModel physics, double timeDelta, double friction)
+	{
+		double[] posX = physics.m_posX, posY = physics.m_posY;
+		double[] velX = physics.m_velX, velY = physics.m_velY;
+		double[] accX = physics.m_accX, accY = physics.m_accY;
+		double[] dispX = physics.m_dispX, dispY = physics.m_dispY;
+		double halfTimeSquared = timeDelta * timeDelta * 0.5;
+		int count = physics.m_bodyCount;
+		
+		//no branches or calls, so the JIT is free to unroll and vectorize it
+		for (int i = 0; i < count; i++)
+		{
+			double dX = velX[i] * timeDelta + accX[i] * halfTimeSquared, dY = velY[i] * timeDelta + accY[i] * halfTimeSquared;
+			dispX[i] = dX;
+			dispY[i] = dY;
+			posX[i] += dX;
+			posY[i] += dY;
+			velX[i] = velX[i] * friction + accX[i] * timeDelta;
+			velY[i] = velY[i] * friction + accY[i] * timeDelta;
+		}
+	}
+}
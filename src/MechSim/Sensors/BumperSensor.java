@@ -1,6 +1,7 @@
 package MechSim.Sensors;
 
-import MechSim.Physics.CollisionListener;
+import MechSim.Physics.ContactEventType;
+import MechSim.Physics.ContactListener;
 import MechSim.Physics.InteractionType;
 import MechSim.Physics.PhysicsObject;
 import MechSim.Skeleton.Robot;
@@ -10,10 +11,11 @@ import MechSim.Skeleton.Robot;
  * @author Gurwinder Gulati
  *
  */
-public class BumperSensor extends BooleanSensor implements CollisionListener
+public class BumperSensor extends BooleanSensor implements ContactListener
 {
 	PhysicsObject m_bumper;
 	boolean m_colNoticed;
+	int m_contactCount;//number of solid PhysicsObjects currently touching the bumper
 		
 	/**
 	 * Creates a Sensor that notices when the Robot collides with anything
@@ -24,25 +26,32 @@ public class BumperSensor extends BooleanSensor implements CollisionListener
 	{
 		super(robot, pollingInterval);
 		m_bumper = robot.GetPhysicsObject();
-		m_bumper.RegisterListener(this);
+		
+		//only the edges matter, so the bumper never hears about contacts that just carry on
+		m_bumper.RegisterContactListener(this, ContactEventType.Begin);
+		m_bumper.RegisterContactListener(this, ContactEventType.End);
 	}
 
 	@Override
 	protected void Poll()
 	{
-		if (m_colNoticed)
-		{
-			m_data = m_colNoticed;
-			m_colNoticed = false;
-		}
-		else
-			m_data = m_bumper.CollidedLastFrame();
+		//a bump that began and ended between polls still counts
+		m_data = m_colNoticed || m_contactCount > 0;
+		m_colNoticed = false;
 	}
 
 	@Override
-	public void NotifyOfCollision(PhysicsObject alpha, PhysicsObject beta)
+	public void NotifyOfContact(PhysicsObject alpha, PhysicsObject beta, ContactEventType type)
 	{
-		if (beta.GetInteractionType() != InteractionType.Ghost)
+		if (beta.GetInteractionType() == InteractionType.Ghost)
+			return;
+		
+		if (type == ContactEventType.Begin)
+		{
 			m_colNoticed = true;
+			m_contactCount++;
+		}
+		else if (m_contactCount > 0)
+			m_contactCount--;
 	}
 }
@@ -1,16 +1,17 @@
 package MechSim.Sensors;
 
 import java.awt.Color;
-import java.util.Iterator;
 
 import MechSim.Physics.BoundsType;
 import MechSim.Physics.InteractionType;
 import MechSim.Physics.PhysicsModel;
 import MechSim.Physics.PhysicsObject;
 import MechSim.Physics.Ray;
+import MechSim.Physics.RayFilter;
+import MechSim.Physics.RayHit;
 import MechSim.Skeleton.Robot;
 
-public class ColorSensor extends Sensor
+public class ColorSensor extends Sensor implements RayFilter
 {
 	/**
 	 * When no color is detected by the Sensor, it's GetData() will return this constant
@@ -20,6 +21,8 @@ public class ColorSensor extends Sensor
 	Color m_data;
 	double m_rotation;
 	double m_cacheCos, m_cacheSin, m_cacheNetRotation;//values cached for optimization purposes
+	Ray m_ray;//re-aimed on every poll rather than created anew
+	RayHit m_hit;
 
 	/**
 	 * Creates a Sensor that detects the color of the nearest PhysicsObject directly in front of it
@@ -36,6 +39,8 @@ public class ColorSensor extends Sensor
 		m_cacheNetRotation = m_robot.GetTransformedData().GetRotation() + m_rotation;
 		m_cacheCos = Math.cos(m_cacheNetRotation);
 		m_cacheSin = Math.sin(m_cacheNetRotation);
+		m_ray = new Ray();
+		m_hit = new RayHit();
 	}
 
 	@Override
@@ -50,36 +55,24 @@ public class ColorSensor extends Sensor
 			m_cacheSin = Math.sin(m_cacheNetRotation);
 		}
 		
-		//create a ray at the center of the robot
-		PhysicsObject physics = m_robot.GetPhysicsObject();
+		//aim the ray from the center of the robot
 		double x = GetRobot().GetPhysicsObject().GetBounds().GetBoundsType() == BoundsType.Circle ? GetRobot().GetPhysicsObject().GetBounds().GetCollisionCircle().X : GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetX() + GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetWidth() / 2.0;
 		double y = GetRobot().GetPhysicsObject().GetBounds().GetBoundsType() == BoundsType.Circle ? GetRobot().GetPhysicsObject().GetBounds().GetCollisionCircle().Y : GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetY() + GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetHeight() / 2.0;
-		Ray ray = new Ray(x, y, m_cacheCos, m_cacheSin);
+		m_ray.Set(x, y, m_cacheCos, m_cacheSin);
 
-		//iterate through all the PhyiscsObjects on the map to find the nearest one
-		double nearestDist = Double.MAX_VALUE, distCache;
-		Iterator<PhysicsObject> objIter = physics.GetPhysicsModel().GetPhysicsObjectIterator();
-		PhysicsObject current, nearest = null;
-		
-		while (objIter.hasNext())
-		{
-			current = objIter.next();
-			if (current == physics || current.GetInteractionType() == InteractionType.Ghost)//the object cannot be the robot, nor can it have InteractionType.Ghost
-				continue;
-			distCache = ray.DistanceTo(current.GetBounds());
-			if (distCache < nearestDist && distCache >= 0.0)
-			{
-				nearestDist = distCache;
-				nearest = current;
-			}
-		}
-		
 		//if there is something in front of us, store the PhysicsObject's color
-		if (nearest != null)
-			m_data = nearest.GetColor();
+		if (m_robot.GetPhysicsObject().GetPhysicsModel().CastRay(m_ray, this, m_hit))
+			m_data = m_hit.GetObject().GetColor();
 		else
 			m_data = NO_OBJECT_DETECTED_COLOR;//otherwise store a default error value
 	}
+
+	@Override
+	public boolean Accepts(PhysicsObject obj)
+	{
+		//the object cannot be the robot, nor can it have InteractionType.Ghost
+		return obj != m_robot.GetPhysicsObject() && obj.GetInteractionType() != InteractionType.Ghost;
+	}
 	
 	/**
 	 * @return Last detected color
@@ -1,12 +1,12 @@
 package MechSim.Sensors;
 
-import java.util.Iterator;
-
 import MechSim.Physics.BoundsType;
 import MechSim.Physics.InteractionType;
 import MechSim.Physics.PhysicsModel;
 import MechSim.Physics.PhysicsObject;
 import MechSim.Physics.Ray;
+import MechSim.Physics.RayFilter;
+import MechSim.Physics.RayHit;
 import MechSim.Skeleton.Robot;
 
 
@@ -15,10 +15,12 @@ import MechSim.Skeleton.Robot;
  * @author Gurwinder Gulati
  *
  */
-public class DistanceSensor extends AnalogSensor
+public class DistanceSensor extends AnalogSensor implements RayFilter
 {
 	double m_rotation;
 	double m_cacheCos, m_cacheSin, m_cacheNetRotation;//values cached for optimization purposes
+	Ray m_ray;//re-aimed on every poll rather than created anew
+	RayHit m_hit;
 	
 	/**
 	 * Creates a Sensor finds the distance to the nearest object directly in front of it.
@@ -34,6 +36,8 @@ public class DistanceSensor extends AnalogSensor
 		m_cacheNetRotation = m_robot.GetTransformedData().GetRotation() + m_rotation;
 		m_cacheCos = Math.cos(m_cacheNetRotation);
 		m_cacheSin = Math.sin(m_cacheNetRotation);
+		m_ray = new Ray();
+		m_hit = new RayHit();
 	}
 
 	@Override
@@ -48,27 +52,20 @@ public class DistanceSensor extends AnalogSensor
 			m_cacheSin = Math.sin(m_cacheNetRotation);
 		}
 		
-		//create a ray at the center of the robot
-		PhysicsObject physics = m_robot.GetPhysicsObject();
+		//aim the ray from the center of the robot
 		double x = GetRobot().GetPhysicsObject().GetBounds().GetBoundsType() == BoundsType.Circle ? GetRobot().GetPhysicsObject().GetBounds().GetCollisionCircle().X : GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetX() + GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetWidth() / 2.0;
 		double y = GetRobot().GetPhysicsObject().GetBounds().GetBoundsType() == BoundsType.Circle ? GetRobot().GetPhysicsObject().GetBounds().GetCollisionCircle().Y : GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetY() + GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetHeight() / 2.0;
-		Ray ray = new Ray(x, y, m_cacheCos, m_cacheSin);
-		
-		//iterate through all the PhyiscsObjects on the map to find the nearest one
-		double nearestDist = Double.MAX_VALUE, distCache;
-		Iterator<PhysicsObject> objIter = physics.GetPhysicsModel().GetPhysicsObjectIterator();
-		PhysicsObject current;
-		
-		while (objIter.hasNext())
-		{
-			current = objIter.next();
-			if (current == physics || current.GetInteractionType() == InteractionType.Ghost)//the object cannot be the robot, nor can it have InteractionType.Ghost
-				continue;
-			distCache = ray.DistanceTo(current.GetBounds());
-			if (distCache < nearestDist && distCache >= 0.0)
-				nearestDist = distCache;
-		}
+		m_ray.Set(x, y, m_cacheCos, m_cacheSin);
 		
-		m_data = nearestDist;//store the distance to the nearest PhyiscsObject - if there isn't one in front of the sensor, it stores Double.MAX_VALUE 
+		//find the nearest PhysicsObject on the map in front of the sensor
+		m_robot.GetPhysicsObject().GetPhysicsModel().CastRay(m_ray, this, m_hit);
+		m_data = m_hit.GetDistance();//if there isn't one in front of the sensor, it stores Double.MAX_VALUE
+	}
+
+	@Override
+	public boolean Accepts(PhysicsObject obj)
+	{
+		//the object cannot be the robot, nor can it have InteractionType.Ghost
+		return obj != m_robot.GetPhysicsObject() && obj.GetInteractionType() != InteractionType.Ghost;
 	}
 }
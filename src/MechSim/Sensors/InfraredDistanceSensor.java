@@ -1,13 +1,14 @@
 package MechSim.Sensors;
 
 import java.awt.Color;
-import java.util.Iterator;
 
 import MechSim.Physics.BoundsType;
 import MechSim.Physics.InteractionType;
 import MechSim.Physics.PhysicsModel;
 import MechSim.Physics.PhysicsObject;
 import MechSim.Physics.Ray;
+import MechSim.Physics.RayFilter;
+import MechSim.Physics.RayHit;
 import MechSim.Skeleton.Robot;
 
 
@@ -16,7 +17,7 @@ import MechSim.Skeleton.Robot;
  * @author Gurwinder Gulati
  *
  */
-public class InfraredDistanceSensor extends AnalogSensor
+public class InfraredDistanceSensor extends AnalogSensor implements RayFilter
 {
 	/**
 	 * Color that all infrared objects must be. In addition, infrared objects must have InteractionType.Ghost
@@ -25,6 +26,8 @@ public class InfraredDistanceSensor extends AnalogSensor
 	
 	double m_rotation;
 	double m_cacheCos, m_cacheSin, m_cacheNetRotation;//values cached for optimization purposes
+	Ray m_ray;//re-aimed on every poll rather than created anew
+	RayHit m_hit;
 	
 	/**
 	 * Creates a Sensor finds the distance to the nearest infrared object directly in front of it.
@@ -39,6 +42,8 @@ public class InfraredDistanceSensor extends AnalogSensor
 		m_cacheNetRotation = m_robot.GetTransformedData().GetRotation() + m_rotation;
 		m_cacheCos = Math.cos(m_cacheNetRotation);
 		m_cacheSin = Math.sin(m_cacheNetRotation);
+		m_ray = new Ray();
+		m_hit = new RayHit();
 	}
 
 	@Override
@@ -53,28 +58,20 @@ public class InfraredDistanceSensor extends AnalogSensor
 			m_cacheSin = Math.sin(m_cacheNetRotation);
 		}
 		
-		//create a ray at the center of the robot
-		PhysicsObject physics = m_robot.GetPhysicsObject();
+		//aim the ray from the center of the robot
 		double x = GetRobot().GetPhysicsObject().GetBounds().GetBoundsType() == BoundsType.Circle ? GetRobot().GetPhysicsObject().GetBounds().GetCollisionCircle().X : GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetX() + GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetWidth() / 2.0;
 		double y = GetRobot().GetPhysicsObject().GetBounds().GetBoundsType() == BoundsType.Circle ? GetRobot().GetPhysicsObject().GetBounds().GetCollisionCircle().Y : GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetY() + GetRobot().GetPhysicsObject().GetBounds().GetCollisionRectangle().GetHeight() / 2.0;
-		Ray ray = new Ray(x, y, m_cacheCos, m_cacheSin);
+		m_ray.Set(x, y, m_cacheCos, m_cacheSin);
 
-		//iterate through all the PhyiscsObjects on the map to find the nearest one
-		double nearestDist = Double.MAX_VALUE, distCache;
-		Iterator<PhysicsObject> objIter = physics.GetPhysicsModel().GetPhysicsObjectIterator();
-		PhysicsObject current;
-		
-		while (objIter.hasNext())
-		{
-			current = objIter.next();
-			//only Ghost PhysicsObjects that are infrared-colored will be considered
-			if (current == physics || current.GetInteractionType() != InteractionType.Ghost || current.GetColor() != INFRARED_COLOR)
-				continue;
-			distCache = ray.DistanceTo(current.GetBounds());
-			if (distCache < nearestDist && distCache >= 0.0)
-				nearestDist = distCache;
-		}
-		
-		m_data = nearestDist;//store the distance to the nearest infrared object - if there isn't one in front of the sensor, it stores Double.MAX_VALUE
+		//find the nearest infrared PhysicsObject on the map in front of the sensor
+		m_robot.GetPhysicsObject().GetPhysicsModel().CastRay(m_ray, this, m_hit);
+		m_data = m_hit.GetDistance();//if there isn't one in front of the sensor, it stores Double.MAX_VALUE
+	}
+
+	@Override
+	public boolean Accepts(PhysicsObject obj)
+	{
+		//only Ghost PhysicsObjects that are infrared-colored will be considered
+		return obj != m_robot.GetPhysicsObject() && obj.GetInteractionType() == InteractionType.Ghost && obj.GetColor() == INFRARED_COLOR;
 	}
 }
@@ -2,13 +2,16 @@ package MechSim.SimUI;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.MouseInfo;
-import java.awt.PointerInfo;
+import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
@@ -24,12 +27,15 @@ import javax.swing.Timer;
  *
  */
 @SuppressWarnings({ "serial" })
-public abstract class GameForm extends JFrame implements ActionListener, KeyListener, MouseListener
+public abstract class GameForm extends JFrame implements ActionListener, KeyListener, MouseListener, ComponentListener
 {
 	static final Color BG_COLOR = new Color(220, 220, 220);//pale grey
 	static final double DRAWING_TIME = 1000.0 / 30.0;//30 FPS for rendering
+	static final int DEFAULT_MAX_STEPS_PER_TICK = 8;
 	
 	Image m_buffer;//backbuffer - used for smoother drawing
+	Graphics2D m_bufferGraphics;//draws on the backbuffer; kept for as long as the backbuffer is
+	Graphics m_screenGraphics;//draws on the form; kept until the form changes size
 	int m_bufferWidth, m_bufferHeight;//dimensions of backbuffer
 	Toolkit m_toolkit;//used to acquire system-specific information, such as screen size and how to load images from disk
 
@@ -37,6 +43,8 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 	Timer m_timer;
 	int m_targetFPS;
 	double m_currentFPS, m_elapsedTime, m_drawingCountdown;
+	double m_fixedTimeStep, m_accumulator;//time between updates, and real time not yet simulated
+	int m_maxStepsPerTick;
 	
 	Dimension m_windowedSize, m_fullScreenSize;
 	boolean m_isFullScreen;
@@ -75,6 +83,8 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 		m_keyStatesIsPressed = new boolean[HIGHEST_VK_TRACKED - LOWEST_VK_TRACKED];
         
         m_targetFPS = fps < 30 ? 30 : fps > 1000 ? 1000 : fps;
+        m_fixedTimeStep = 1000.0 / m_targetFPS;
+        m_maxStepsPerTick = DEFAULT_MAX_STEPS_PER_TICK;
 		m_timer = new Timer(1000 / m_targetFPS, this);
 		m_timer.start();
 		m_startTime = m_prevTime = System.currentTimeMillis();//track the time between frames (since the timer merely guarantees that AT LEAST tick duration elapsed)
@@ -94,6 +104,7 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 		this.setFocusTraversalKeysEnabled(false);//no TAB or SHIFT-TAB to change controls
 		this.addKeyListener(this);
 		this.addMouseListener(this);
+		this.addComponentListener(this);
 	}
 	
 	private void InitGraphics()
@@ -115,13 +126,11 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 	
 	/**
 	 * Updates the current state. Should be overriden by the child class.
+	 * Always called with the same time delta, regardless of how long frames actually take
 	 * @param timeDelta Time in milliseconds since last update
 	 */
 	protected void Update(double timeDelta)
 	{
-		m_elapsedTime = (m_currentTime - m_startTime) / 1000.0f;//time, in seconds, since creation of GameForm
-		m_currentFPS = Math.floor(1000.0 / timeDelta);//estimated FPS at this instant in time, rounded down
-		
 		if (IsKeyTriggered(KeyEvent.VK_F11))//toggle fullscreen
 		{
 			m_isFullScreen = !m_isFullScreen;
@@ -147,9 +156,9 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 		m_mouseRightWasPressed = m_mouseRightIsPressed;
 		
 		//update mouse position information
-		PointerInfo mouse = MouseInfo.getPointerInfo();
-		m_mouseX = mouse.getLocation().getX();
-		m_mouseY = mouse.getLocation().getY();
+		Point mouse = MouseInfo.getPointerInfo().getLocation();
+		m_mouseX = mouse.getX();
+		m_mouseY = mouse.getY();
 	}
 	
 	/**
@@ -167,6 +176,22 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 	 */
 	public int GetTargetFPS() { return m_targetFPS; }
 	
+	/**
+	 * @return Time in milliseconds passed to every call of Update()
+	 */
+	public double GetFixedTimeStep() { return m_fixedTimeStep; }
+	
+	/**
+	 * Sets the most updates run to catch up after a slow frame; any time beyond that is dropped, slowing the simulation down instead of falling further behind
+	 * @param maxSteps Most updates per timer tick; values less than 1 are treated as 1
+	 */
+	public void SetMaxStepsPerTick(int maxSteps) { m_maxStepsPerTick = maxSteps < 1 ? 1 : maxSteps; }
+	
+	/**
+	 * @return Most updates run to catch up after a slow frame
+	 */
+	public int GetMaxStepsPerTick() { return m_maxStepsPerTick; }
+	
 	/**
 	 * @param keyCode Key code of the key, as per KeyEvent.VK_[Key Name]
 	 * @return Whether or not the key is currently pressed
@@ -240,7 +265,6 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 		return m_toolkit.getImage(file);
 	}
 	
-	Graphics2D graphics;
 	//BEGIN ActionListener
 	@Override
 	public void actionPerformed(ActionEvent e)
@@ -248,12 +272,25 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 		Object source = e.getSource();
 		if (source == m_timer)
 		{
-			//on each tick, update all objects
 			m_currentTime = System.currentTimeMillis();
 			double timeDelta = m_currentTime - m_prevTime;
-			Update(timeDelta);
-			ProcessInput();
 			m_prevTime = m_currentTime;
+			m_elapsedTime = (m_currentTime - m_startTime) / 1000.0f;//time, in seconds, since creation of GameForm
+			if (timeDelta > 0.0)
+				m_currentFPS = Math.floor(1000.0 / timeDelta);//estimated FPS at this instant in time, rounded down
+			
+			//on each tick, update all objects in fixed steps to cover the real time that passed
+			//if the updates can't keep up, drop the time that can't be covered rather than taking ever more steps per tick
+			m_accumulator += timeDelta;
+			double maxBacklog = m_fixedTimeStep * m_maxStepsPerTick;
+			if (m_accumulator > maxBacklog)
+				m_accumulator = maxBacklog;
+			while (m_accumulator >= m_fixedTimeStep)
+			{
+				Update(m_fixedTimeStep);
+				ProcessInput();//so a key press is only seen as triggered by the first step after it
+				m_accumulator -= m_fixedTimeStep;
+			}
 
 			//but only draw the game at 30 FPS because the human eye sees things at about 28 hertz - any faster than 30 FPS would slow the game down with no benefit
 			m_drawingCountdown -= timeDelta;
@@ -261,18 +298,23 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 			{
 				m_drawingCountdown = DRAWING_TIME;
 				if (m_buffer == null)
+				{
 					m_buffer = this.createImage(m_bufferWidth, m_bufferHeight);
+					if (m_buffer != null)
+						m_bufferGraphics = (Graphics2D)m_buffer.getGraphics();
+				}
+				if (m_screenGraphics == null)
+					m_screenGraphics = this.getGraphics();
 	
-				if (m_buffer != null)
+				if (m_buffer != null && m_screenGraphics != null)
 				{
 					//render on a backbuffer, then draw the backbuffer to the background of the form
-					Graphics2D graphics = (Graphics2D)m_buffer.getGraphics();
-					Render(graphics);
-					this.getGraphics().drawImage(m_buffer, 0, 0, this.getContentPane().getWidth(), this.getContentPane().getHeight(), null);
+					Render(m_bufferGraphics);
+					m_screenGraphics.drawImage(m_buffer, 0, 0, this.getContentPane().getWidth(), this.getContentPane().getHeight(), null);
 					
 					//clear the backbuffer afterwards
-					graphics.setColor(BG_COLOR);
-					graphics.fillRect(0, 0, m_bufferWidth, m_bufferHeight);
+					m_bufferGraphics.setColor(BG_COLOR);
+					m_bufferGraphics.fillRect(0, 0, m_bufferWidth, m_bufferHeight);
 				}
 			}
 		}
@@ -340,4 +382,34 @@ public abstract class GameForm extends JFrame implements ActionListener, KeyList
 			m_mouseRightIsPressed = false;
 	}
 	//END MouseListener
+
+	//BEGIN ComponentListener
+	@Override
+	public void componentResized(ComponentEvent e)
+	{
+		if (m_screenGraphics != null)
+		{
+			m_screenGraphics.dispose();
+			m_screenGraphics = null;//clipped to the old size, so fetch a new one next frame
+		}
+	}
+
+	@Override
+	public void componentMoved(ComponentEvent e)
+	{
+		//ignore
+	}
+
+	@Override
+	public void componentShown(ComponentEvent e)
+	{
+		//ignore
+	}
+
+	@Override
+	public void componentHidden(ComponentEvent e)
+	{
+		//ignore
+	}
+	//END ComponentListener
 }
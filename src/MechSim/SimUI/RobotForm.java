@@ -4,7 +4,10 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import MechSim.Physics.PhysicsModel;
 import MechSim.Physics.PhysicsObject;
@@ -24,9 +27,13 @@ public class RobotForm extends GameForm
 	private static final long serialVersionUID = 6887209662832536071L;
 
 	PhysicsModel m_physics;
-	List<GameObject> m_objects;
-	List<PhysicsObject> m_physicsOnlyObjects;
+	Set<GameObject> m_objects;//keeps the order GameObjects were added in, while still removing them in constant time
+	List<GameObject> m_pendingObjects;//GameObjects added or removed while m_objects was being updated
+	List<Boolean> m_pendingAdditions;
+	boolean m_updatingObjects;
 	boolean m_debugMode;
+	String m_fpsText;//debug text, only rebuilt when the frame rate it shows changes
+	double m_fpsTextValue;
 	
 	/**
 	 * Creates a Form for simulating one or more Robots
@@ -50,8 +57,9 @@ public class RobotForm extends GameForm
 		super(fps, false, width, height);
 		
 		m_physics = new PhysicsModel();
-		m_objects = new ArrayList<GameObject>();
-		m_physicsOnlyObjects = new ArrayList<PhysicsObject>();
+		m_objects = new LinkedHashSet<GameObject>();
+		m_pendingObjects = new ArrayList<GameObject>();
+		m_pendingAdditions = new ArrayList<Boolean>();
 		
 		Init();
 		if (visible)
@@ -66,7 +74,7 @@ public class RobotForm extends GameForm
 	}
 	
 	/**
-	 * OVERRIDE THIS METHOD. Updates all GameObjects registered to be updated
+	 * OVERRIDE THIS METHOD. Steps the physics simulation, then updates all GameObjects registered to be updated
 	 */
 	protected void Update(double timeDelta)
 	{
@@ -75,10 +83,23 @@ public class RobotForm extends GameForm
 		if (IsKeyTriggered(KeyEvent.VK_F1))
 			ToggleDebugMode();
 
-		for (PhysicsObject obj : m_physicsOnlyObjects)
-			obj.Update(timeDelta);
+		m_physics.Step(timeDelta);
+		
+		//GameObjects may add or remove others as they update, which has to wait until they're all done
+		m_updatingObjects = true;
 		for (GameObject obj : m_objects)
 			obj.Update(timeDelta);
+		m_updatingObjects = false;
+		
+		for (int i = 0; i < m_pendingObjects.size(); i++)
+		{
+			if (m_pendingAdditions.get(i))
+				AddObject(m_pendingObjects.get(i));
+			else
+				RemoveObject(m_pendingObjects.get(i));
+		}
+		m_pendingObjects.clear();
+		m_pendingAdditions.clear();
 	}
 
 	/**
@@ -100,7 +121,12 @@ public class RobotForm extends GameForm
 			g.drawRect(m_bufferWidth - 150, 1, 148, 54);
 			g.setColor(Color.WHITE);
 			g.drawString("DEBUG INFO", m_bufferWidth - 145, 15);
-			g.drawString("FPS: " + GetCurrentFPS() + " / " + GetTargetFPS(), m_bufferWidth - 140, 30);
+			if (m_fpsText == null || m_fpsTextValue != GetCurrentFPS())
+			{
+				m_fpsTextValue = GetCurrentFPS();
+				m_fpsText = "FPS: " + m_fpsTextValue + " / " + GetTargetFPS();
+			}
+			g.drawString(m_fpsText, m_bufferWidth - 140, 30);
 		}
 	}
 	
@@ -110,6 +136,12 @@ public class RobotForm extends GameForm
 	 */
 	public void AddObject(GameObject obj)
 	{
+		if (m_updatingObjects)
+		{
+			m_pendingObjects.add(obj);
+			m_pendingAdditions.add(true);
+			return;
+		}
 		m_objects.add(obj);
 		m_physics.RegisterObject(obj.GetPhysicsObject());
 	}
@@ -120,6 +152,12 @@ public class RobotForm extends GameForm
 	 */
 	public void RemoveObject(GameObject obj)
 	{
+		if (m_updatingObjects)
+		{
+			m_pendingObjects.add(obj);
+			m_pendingAdditions.add(false);
+			return;
+		}
 		m_objects.remove(obj);
 		m_physics.UnregisterObject(obj.GetPhysicsObject());
 	}
@@ -130,7 +168,6 @@ public class RobotForm extends GameForm
 	 */
 	public void AddObject(PhysicsObject obj)
 	{
-		m_physicsOnlyObjects.add(obj);
 		m_physics.RegisterObject(obj);
 	}
 
@@ -140,10 +177,27 @@ public class RobotForm extends GameForm
 	 */
 	public void RemoveObject(PhysicsObject obj)
 	{
-		m_physicsOnlyObjects.remove(obj);
 		m_physics.UnregisterObject(obj);
 	}
 	
+	/**
+	 * Registers many PhysicsObjects to be updated physics-wise at once
+	 * @param objs PhysicsObjects to register
+	 */
+	public void AddObjects(Collection<? extends PhysicsObject> objs)
+	{
+		m_physics.RegisterObjects(objs);
+	}
+	
+	/**
+	 * Unregisters many PhysicsObjects from being updated physics-wise at once
+	 * @param objs PhysicsObjects to unregister
+	 */
+	public void RemoveObjects(Collection<? extends PhysicsObject> objs)
+	{
+		m_physics.UnregisterObjects(objs);
+	}
+	
 	public void ToggleDebugMode()
 	{
 		m_debugMode = !m_debugMode;
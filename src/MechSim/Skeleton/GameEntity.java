@@ -64,7 +64,7 @@ public abstract class GameEntity extends GameObject
 	}
 	
 	/**
-	 * Updates the GameEntity's physical properties
+	 * Moves the GameEntity's image to match its PhysicsObject
 	 * @param timeDelta Time since last update
 	 */
 	public void Update(double timeDelta)
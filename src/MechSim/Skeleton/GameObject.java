@@ -52,12 +52,11 @@ public abstract class GameObject implements SelfRendering
 	}
 	
 	/**
-	 * Updates the GameObject's physical properties
+	 * Updates the GameObject. Its physical properties are updated separately, by PhysicsModel.Step
 	 * @param timeDelta Time since last update
 	 */
 	public void Update(double timeDelta)
 	{
-		m_physics.Update(timeDelta);
 	}
 	
 	/**